@@ -0,0 +1,79 @@
+package ru.ifmo.ctd.mekhanikov.range.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.ifmo.ctd.mekhanikov.range.BatchQuery;
+import ru.ifmo.ctd.mekhanikov.range.RangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+import ru.ifmo.ctd.mekhanikov.range.workload.Distribution;
+import ru.ifmo.ctd.mekhanikov.range.workload.Workload;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// a whole set of count queries: one by one in the given order, in sweep order, and in sweep order over the common pool
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"RANGE_TREE", "STATIC"})
+    private Implementation implementation;
+
+    @Param({"100000"})
+    private int pointsCount;
+
+    @Param({"10000"})
+    private int queriesCount;
+
+    @Param({"0.01"})
+    private double selectivity;
+
+    @Param
+    private Distribution distribution;
+
+    private RangeQuery rangeQuery;
+    private List<Rectangle> queries;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Workload workload = Workload.generate(distribution, pointsCount, queriesCount, selectivity, SEED);
+        rangeQuery = implementation.build(workload.getPoints());
+        queries = workload.getQueries();
+    }
+
+    @Benchmark
+    public int[] loop() {
+        int[] result = new int[queries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = rangeQuery.getCount(queries.get(i));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int[] sorted() {
+        return BatchQuery.getCounts(rangeQuery, queries);
+    }
+
+    @Benchmark
+    public int[] parallel() {
+        return BatchQuery.getCounts(rangeQuery, queries, ForkJoinPool.commonPool());
+    }
+}
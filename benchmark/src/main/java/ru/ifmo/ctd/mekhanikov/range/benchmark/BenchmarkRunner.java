@@ -0,0 +1,23 @@
+package ru.ifmo.ctd.mekhanikov.range.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// JMH with the GC profiler (allocation rate and GC counts) and JSON results in jmh-result.json,
+// other arguments are the usual JMH ones, e.g. "QueryBenchmark.getCount -p implementation=RANGE_TREE"
+public class BenchmarkRunner {
+
+    public static void main(String... args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-result.json")
+                .build();
+        new Runner(options).run();
+    }
+}
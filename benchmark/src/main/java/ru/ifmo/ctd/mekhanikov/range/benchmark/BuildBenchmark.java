@@ -0,0 +1,56 @@
+package ru.ifmo.ctd.mekhanikov.range.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.RangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.workload.Distribution;
+import ru.ifmo.ctd.mekhanikov.range.workload.Workload;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// a structure built from all the points at once; with the GC profiler gc.alloc.rate.norm is the number of bytes
+// allocated per build, an upper bound of the memory the structure keeps besides the points themselves
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BuildBenchmark {
+
+    private static final long SEED = 42;
+
+    // all implementations unless given
+    @Param
+    private Implementation implementation;
+
+    @Param({"10000", "100000"})
+    private int pointsCount;
+
+    @Param
+    private Distribution distribution;
+
+    private List<Point> points;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        points = Workload.generate(distribution, pointsCount, 0, 0, SEED).getPoints();
+    }
+
+    @Benchmark
+    public RangeQuery build() {
+        return implementation.build(points);
+    }
+}
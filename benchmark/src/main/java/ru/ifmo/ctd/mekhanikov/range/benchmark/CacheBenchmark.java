@@ -0,0 +1,97 @@
+package ru.ifmo.ctd.mekhanikov.range.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.ifmo.ctd.mekhanikov.range.RangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.cache.CachingRangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.workload.Distribution;
+import ru.ifmo.ctd.mekhanikov.range.workload.Operation;
+import ru.ifmo.ctd.mekhanikov.range.workload.Workload;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// a fixed set of QUERIES_COUNT count queries repeated between rare updates, with and without the cache;
+// hits and misses, summed over the measured iterations, are reported next to the time
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = CacheBenchmark.BATCH_SIZE)
+@Measurement(iterations = 10, batchSize = CacheBenchmark.BATCH_SIZE)
+@Fork(1)
+public class CacheBenchmark {
+
+    static final int BATCH_SIZE = 100000;
+    private static final long SEED = 42;
+    private static final int QUERIES_COUNT = 2048;
+
+    @Param({"RANGE_TREE", "HYBRID"})
+    private Implementation implementation;
+
+    @Param({"100000"})
+    private int pointsCount;
+
+    @Param({"0.01"})
+    private double selectivity;
+
+    @Param({"0.99", "0.999"})
+    private double readShare;
+
+    // 0 for no cache
+    @Param({"0", "1024", "4096"})
+    private int cacheSize;
+
+    @Param({"UNIFORM", "CLUSTERED"})
+    private Distribution distribution;
+
+    private Workload workload;
+    private List<Operation> operations;
+    private RangeQuery rangeQuery;
+    private CachingRangeQuery cache;
+    private int next;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class CacheCounters {
+        public long hits;
+        public long misses;
+    }
+
+    @Setup(Level.Trial)
+    public void generate() {
+        workload = Workload.generate(distribution, pointsCount, QUERIES_COUNT, selectivity, SEED);
+        operations = workload.getMixedOperations(BATCH_SIZE, readShare);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        rangeQuery = implementation.build(workload.getPoints());
+        cache = null;
+        if (cacheSize > 0) {
+            cache = new CachingRangeQuery(rangeQuery, cacheSize);
+            rangeQuery = cache;
+        }
+        next = 0;
+    }
+
+    @Benchmark
+    public int apply(CacheCounters counters) {
+        int result = operations.get(next++).apply(rangeQuery);
+        if (cache != null) {
+            counters.hits = cache.getHits();
+            counters.misses = cache.getMisses();
+        }
+        return result;
+    }
+}
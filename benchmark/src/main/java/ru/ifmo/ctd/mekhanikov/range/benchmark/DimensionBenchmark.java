@@ -0,0 +1,82 @@
+package ru.ifmo.ctd.mekhanikov.range.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.ifmo.ctd.mekhanikov.range.Box;
+import ru.ifmo.ctd.mekhanikov.range.MultiPoint;
+import ru.ifmo.ctd.mekhanikov.range.tree.MultiRangeTree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// MultiRangeTree build and count queries in d dimensions; Workload is two-dimensional, so the uniform points
+// and the boxes, every side half of the unit cube, are generated here
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DimensionBenchmark {
+
+    private static final long SEED = 42;
+    private static final int QUERIES_COUNT = 1024;
+
+    @Param({"2", "3", "4"})
+    private int dimension;
+
+    @Param({"10000"})
+    private int pointsCount;
+
+    private List<MultiPoint> points;
+    private Box[] queries;
+    private MultiRangeTree<MultiPoint> tree;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(SEED);
+        points = new ArrayList<>();
+        for (int i = 0; i < pointsCount; i++) {
+            double[] coordinates = new double[dimension];
+            for (int j = 0; j < dimension; j++) {
+                coordinates[j] = random.nextDouble();
+            }
+            points.add(new MultiPoint(coordinates));
+        }
+        queries = new Box[QUERIES_COUNT];
+        for (int i = 0; i < QUERIES_COUNT; i++) {
+            double[] min = new double[dimension];
+            double[] max = new double[dimension];
+            for (int j = 0; j < dimension; j++) {
+                min[j] = random.nextDouble() / 2;
+                max[j] = min[j] + 0.5;
+            }
+            queries[i] = new Box(new MultiPoint(min), new MultiPoint(max));
+        }
+        tree = MultiRangeTree.build(points, dimension);
+    }
+
+    @Benchmark
+    public MultiRangeTree<MultiPoint> build() {
+        return MultiRangeTree.build(points, dimension);
+    }
+
+    @Benchmark
+    public int getCount() {
+        next = (next + 1) & (QUERIES_COUNT - 1);
+        return tree.getCount(queries[next]);
+    }
+}
@@ -0,0 +1,57 @@
+package ru.ifmo.ctd.mekhanikov.range.benchmark;
+
+import ru.ifmo.ctd.mekhanikov.range.NaiveRangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.RangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.grid.GridRangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.kd.KdTree;
+import ru.ifmo.ctd.mekhanikov.range.rtree.RTree;
+import ru.ifmo.ctd.mekhanikov.range.scan.ColumnarRangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.tree.BufferRangeTree;
+import ru.ifmo.ctd.mekhanikov.range.tree.ConcurrentRangeTree;
+import ru.ifmo.ctd.mekhanikov.range.tree.FlatRangeTree;
+import ru.ifmo.ctd.mekhanikov.range.tree.HybridRangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.tree.LogarithmicRangeTree;
+import ru.ifmo.ctd.mekhanikov.range.tree.RangeTree;
+import ru.ifmo.ctd.mekhanikov.range.tree.StaticRangeTree;
+
+import java.util.List;
+import java.util.function.Function;
+
+// every RangeQuery of the project, built from the given points
+public enum Implementation {
+    NAIVE(true, points -> fill(new NaiveRangeQuery(), points)),
+    COLUMNAR(true, points -> fill(new ColumnarRangeQuery(), points)),
+    GRID(true, points -> fill(new GridRangeQuery(), points)),
+    RANGE_TREE(true, points -> fill(new RangeTree(), points)),
+    CONCURRENT(true, ConcurrentRangeTree::new),
+    LOGARITHMIC(true, points -> fill(new LogarithmicRangeTree(), points)),
+    HYBRID(true, points -> fill(new HybridRangeQuery(), points)),
+    STATIC(false, StaticRangeTree::build),
+    FLAT(false, FlatRangeTree::build),
+    KD_TREE(false, KdTree::build),
+    R_TREE(false, RTree::build),
+    OFF_HEAP(false, BufferRangeTree::allocate);
+
+    private final boolean dynamic;
+    private final Function<List<Point>, RangeQuery> builder;
+
+    Implementation(boolean dynamic, Function<List<Point>, RangeQuery> builder) {
+        this.dynamic = dynamic;
+        this.builder = builder;
+    }
+
+    private static RangeQuery fill(RangeQuery rangeQuery, List<Point> points) {
+        rangeQuery.addAll(points);
+        return rangeQuery;
+    }
+
+    public RangeQuery build(List<Point> points) {
+        return builder.apply(points);
+    }
+
+    // static implementations do not support add and remove
+    public boolean isDynamic() {
+        return dynamic;
+    }
+}
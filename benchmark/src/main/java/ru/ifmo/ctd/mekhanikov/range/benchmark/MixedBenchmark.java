@@ -0,0 +1,73 @@
+package ru.ifmo.ctd.mekhanikov.range.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.ifmo.ctd.mekhanikov.range.RangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.workload.Distribution;
+import ru.ifmo.ctd.mekhanikov.range.workload.Operation;
+import ru.ifmo.ctd.mekhanikov.range.workload.Workload;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// interleaved count queries and updates, every iteration replays the same operations on a fresh structure
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = MixedBenchmark.BATCH_SIZE)
+@Measurement(iterations = 10, batchSize = MixedBenchmark.BATCH_SIZE)
+@Fork(1)
+public class MixedBenchmark {
+
+    static final int BATCH_SIZE = 10000;
+    private static final long SEED = 42;
+    private static final int QUERIES_COUNT = 1024;
+
+    @Param({"NAIVE", "COLUMNAR", "GRID", "RANGE_TREE", "CONCURRENT", "LOGARITHMIC", "HYBRID"})
+    private Implementation implementation;
+
+    @Param({"1000", "100000"})
+    private int pointsCount;
+
+    @Param({"0.01"})
+    private double selectivity;
+
+    // share of count queries among the operations
+    @Param({"0.5", "0.9", "0.99"})
+    private double readShare;
+
+    @Param
+    private Distribution distribution;
+
+    private Workload workload;
+    private List<Operation> operations;
+    private RangeQuery rangeQuery;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        workload = Workload.generate(distribution, pointsCount, QUERIES_COUNT, selectivity, SEED);
+        operations = workload.getMixedOperations(BATCH_SIZE, readShare);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        rangeQuery = implementation.build(workload.getPoints());
+        next = 0;
+    }
+
+    @Benchmark
+    public int apply() {
+        return operations.get(next++).apply(rangeQuery);
+    }
+}
@@ -0,0 +1,88 @@
+package ru.ifmo.ctd.mekhanikov.range.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+import ru.ifmo.ctd.mekhanikov.range.tree.RangeTree;
+import ru.ifmo.ctd.mekhanikov.range.workload.Distribution;
+import ru.ifmo.ctd.mekhanikov.range.workload.Workload;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// RangeTree bulk build and reporting of large results split over fork-join pools of the given size,
+// 0 threads stands for the sequential versions: addAll and get without a pool
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelBenchmark {
+
+    private static final long SEED = 42;
+    private static final int QUERIES_COUNT = 64;
+
+    @Param({"0", "1", "2", "4"})
+    private int threads;
+
+    @Param({"200000"})
+    private int pointsCount;
+
+    @Param({"0.5"})
+    private double selectivity;
+
+    @Param
+    private Distribution distribution;
+
+    private List<Point> points;
+    private Rectangle[] queries;
+    private RangeTree tree;
+    private ForkJoinPool pool;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Workload workload = Workload.generate(distribution, pointsCount, QUERIES_COUNT, selectivity, SEED);
+        points = workload.getPoints();
+        queries = workload.getQueries().toArray(new Rectangle[QUERIES_COUNT]);
+        tree = RangeTree.build(points);
+        pool = threads == 0 ? null : new ForkJoinPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public RangeTree build() {
+        if (pool == null) {
+            RangeTree result = new RangeTree();
+            result.addAll(points);
+            return result;
+        }
+        return RangeTree.build(points, pool);
+    }
+
+    @Benchmark
+    public List<Point> get() {
+        next = (next + 1) & (QUERIES_COUNT - 1);
+        return pool == null ? tree.get(queries[next]) : tree.get(queries[next], pool);
+    }
+}
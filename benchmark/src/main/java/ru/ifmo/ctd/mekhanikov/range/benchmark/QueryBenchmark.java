@@ -0,0 +1,85 @@
+package ru.ifmo.ctd.mekhanikov.range.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.RangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+import ru.ifmo.ctd.mekhanikov.range.workload.Distribution;
+import ru.ifmo.ctd.mekhanikov.range.workload.Workload;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// time of a single query, queries are taken in turn from a fixed set; with the GC profiler gc.alloc.rate.norm is
+// the number of bytes allocated per query. The crossovers of HybridRangeQuery are the points where COLUMNAR and
+// RANGE_TREE swap places, e.g. "-p implementation=COLUMNAR,RANGE_TREE,HYBRID -p pointsCount=16,64,256,1024,4096"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+
+    private static final long SEED = 42;
+    private static final int QUERIES_COUNT = 1024;
+
+    // all implementations unless given
+    @Param
+    private Implementation implementation;
+
+    @Param({"1000", "100000"})
+    private int pointsCount;
+
+    // share of the points inside a query, see Workload
+    @Param({"0.001", "0.01", "0.1"})
+    private double selectivity;
+
+    @Param
+    private Distribution distribution;
+
+    private RangeQuery rangeQuery;
+    private Rectangle[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Workload workload = Workload.generate(distribution, pointsCount, QUERIES_COUNT, selectivity, SEED);
+        rangeQuery = implementation.build(workload.getPoints());
+        queries = workload.getQueries().toArray(new Rectangle[QUERIES_COUNT]);
+    }
+
+    private Rectangle nextQuery() {
+        next = (next + 1) & (QUERIES_COUNT - 1);
+        return queries[next];
+    }
+
+    @Benchmark
+    public int getCount() {
+        return rangeQuery.getCount(nextQuery());
+    }
+
+    // the overload that takes no Rectangle, allocation free in the trees
+    @Benchmark
+    public int getCountBounds() {
+        Rectangle query = nextQuery();
+        return rangeQuery.getCount(query.getBottomLeft().getX(), query.getBottomLeft().getY(),
+                query.getTopRight().getX(), query.getTopRight().getY());
+    }
+
+    @Benchmark
+    public List<Point> get() {
+        return rangeQuery.get(nextQuery());
+    }
+}
@@ -0,0 +1,84 @@
+package ru.ifmo.ctd.mekhanikov.range.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+import ru.ifmo.ctd.mekhanikov.range.tree.BufferRangeTree;
+import ru.ifmo.ctd.mekhanikov.range.tree.RangeTree;
+import ru.ifmo.ctd.mekhanikov.range.tree.StaticRangeTree;
+import ru.ifmo.ctd.mekhanikov.range.workload.Distribution;
+import ru.ifmo.ctd.mekhanikov.range.workload.Workload;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// time until the first query is answered: building a tree from the points against opening a written index
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StartupBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"200000"})
+    private int pointsCount;
+
+    @Param({"0.25"})
+    private double selectivity;
+
+    @Param
+    private Distribution distribution;
+
+    private List<Point> points;
+    private Rectangle query;
+    private Path path;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Workload workload = Workload.generate(distribution, pointsCount, 1, selectivity, SEED);
+        points = workload.getPoints();
+        query = workload.getQueries().get(0);
+        path = Files.createTempFile("range", ".idx");
+        BufferRangeTree.write(StaticRangeTree.build(points), path);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.delete(path);
+    }
+
+    @Benchmark
+    public int add() {
+        RangeTree tree = new RangeTree();
+        points.forEach(tree::add);
+        return tree.getCount(query);
+    }
+
+    @Benchmark
+    public int build() {
+        return StaticRangeTree.build(points).getCount(query);
+    }
+
+    @Benchmark
+    public int open() throws IOException {
+        return BufferRangeTree.open(path).getCount(query);
+    }
+}
@@ -0,0 +1,72 @@
+package ru.ifmo.ctd.mekhanikov.range.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.RangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.workload.Distribution;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// updates change the measured structure, so every iteration starts from a fresh one
+// and times a single batch of BATCH_SIZE updates
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = UpdateBenchmark.BATCH_SIZE)
+@Measurement(iterations = 10, batchSize = UpdateBenchmark.BATCH_SIZE)
+@Fork(1)
+public class UpdateBenchmark {
+
+    static final int BATCH_SIZE = 1000;
+    private static final long SEED = 42;
+
+    @Param({"NAIVE", "COLUMNAR", "GRID", "RANGE_TREE", "CONCURRENT", "LOGARITHMIC", "HYBRID"})
+    private Implementation implementation;
+
+    @Param({"1000", "100000"})
+    private int pointsCount;
+
+    @Param
+    private Distribution distribution;
+
+    private List<Point> points;
+    private List<Point> extra;
+    private RangeQuery rangeQuery;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        Random random = new Random(SEED);
+        points = distribution.generate(pointsCount, random);
+        extra = distribution.generate(BATCH_SIZE, random);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        rangeQuery = implementation.build(points);
+        next = 0;
+    }
+
+    @Benchmark
+    public void add() {
+        rangeQuery.add(extra.get(next++));
+    }
+
+    @Benchmark
+    public void remove() {
+        rangeQuery.remove(points.get(next++));
+    }
+}
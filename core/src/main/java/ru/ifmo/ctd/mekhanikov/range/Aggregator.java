@@ -0,0 +1,11 @@
+package ru.ifmo.ctd.mekhanikov.range;
+
+// commutative monoid over points: combine must be associative and commutative and identity must be its neutral
+// element. Points are combined in no particular order: trees combine precomputed subtrees in the order of their
+// slabs and points with equal coordinates in insertion order, other queries fold points in report order.
+// Floating-point sums are associative only up to rounding, so their results may differ in the last bits.
+public interface Aggregator<A> {
+    A identity();
+    A lift(Point p);
+    A combine(A a, A b);
+}
@@ -0,0 +1,101 @@
+package ru.ifmo.ctd.mekhanikov.range;
+
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+// common aggregators, e.g. Aggregators.sum(WeightedPoint::weightOf) for the total weight.
+// A tree only keeps the aggregates of the instance it was created with, so keep that instance for queries.
+public final class Aggregators {
+
+    private Aggregators() {
+    }
+
+    public static <A> Aggregator<A> of(A identity, Function<? super Point, A> lift, BinaryOperator<A> combine) {
+        return new Aggregator<A>() {
+            @Override
+            public A identity() {
+                return identity;
+            }
+
+            @Override
+            public A lift(Point p) {
+                return lift.apply(p);
+            }
+
+            @Override
+            public A combine(A a, A b) {
+                return combine.apply(a, b);
+            }
+        };
+    }
+
+    public static Aggregator<Integer> count() {
+        return of(0, p -> 1, Integer::sum);
+    }
+
+    public static Aggregator<Double> sum(ToDoubleFunction<? super Point> value) {
+        return of(0.0, value::applyAsDouble, Double::sum);
+    }
+
+    public static Aggregator<Double> min(ToDoubleFunction<? super Point> value) {
+        return of(Double.POSITIVE_INFINITY, value::applyAsDouble, Math::min);
+    }
+
+    public static Aggregator<Double> max(ToDoubleFunction<? super Point> value) {
+        return of(Double.NEGATIVE_INFINITY, value::applyAsDouble, Math::max);
+    }
+
+    public static Aggregator<Stats> stats(ToDoubleFunction<? super Point> value) {
+        return of(Stats.EMPTY, p -> {
+            double v = value.applyAsDouble(p);
+            return new Stats(1, v, v, v);
+        }, Stats::combine);
+    }
+
+    public static final class Stats {
+        static final Stats EMPTY = new Stats(0, 0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY);
+
+        private final int count;
+        private final double sum;
+        private final double min;
+        private final double max;
+
+        Stats(int count, double sum, double min, double max) {
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public double getSum() {
+            return sum;
+        }
+
+        public double getMin() {
+            return min;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        // NaN for no points
+        public double getAverage() {
+            return sum / count;
+        }
+
+        Stats combine(Stats o) {
+            return new Stats(count + o.count, sum + o.sum, Math.min(min, o.min), Math.max(max, o.max));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count %d, sum %f, min %f, max %f", count, sum, min, max);
+        }
+    }
+}
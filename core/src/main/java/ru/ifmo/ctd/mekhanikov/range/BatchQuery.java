@@ -0,0 +1,91 @@
+package ru.ifmo.ctd.mekhanikov.range;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+// Executes batches of queries in the order of their bottom left corners, so that consecutive queries
+// walk mostly the same search paths. The parallel versions split the sorted batch into contiguous chunks,
+// the range query must then tolerate concurrent reads.
+public final class BatchQuery {
+
+    private static final int CHUNK_SIZE = 256;
+
+    private static final Comparator<Rectangle> SWEEP_ORDER =
+            Comparator.comparingDouble((Rectangle r) -> r.getBottomLeft().getX())
+                    .thenComparingDouble(r -> r.getBottomLeft().getY());
+
+    private BatchQuery() {
+    }
+
+    public static int[] getCounts(ReadOnlyRangeQuery rangeQuery, List<Rectangle> queries) {
+        return getCounts(rangeQuery, queries, null);
+    }
+
+    public static int[] getCounts(ReadOnlyRangeQuery rangeQuery, List<Rectangle> queries, ForkJoinPool pool) {
+        int[] result = new int[queries.size()];
+        execute(queries, pool, i -> result[i] = rangeQuery.getCount(queries.get(i)));
+        return result;
+    }
+
+    public static List<List<Point>> getAll(ReadOnlyRangeQuery rangeQuery, List<Rectangle> queries) {
+        return getAll(rangeQuery, queries, null);
+    }
+
+    public static List<List<Point>> getAll(ReadOnlyRangeQuery rangeQuery, List<Rectangle> queries, ForkJoinPool pool) {
+        @SuppressWarnings("unchecked")
+        List<Point>[] result = new List[queries.size()];
+        execute(queries, pool, i -> result[i] = rangeQuery.get(queries.get(i)));
+        return new ArrayList<>(Arrays.asList(result));
+    }
+
+    private static void execute(List<Rectangle> queries, ForkJoinPool pool, IntConsumer query) {
+        int[] order = getSweepOrder(queries);
+        if (pool == null) {
+            for (int i : order) {
+                query.accept(i);
+            }
+        } else {
+            pool.invoke(new Chunk(order, 0, order.length, query));
+        }
+    }
+
+    private static int[] getSweepOrder(List<Rectangle> queries) {
+        Integer[] order = new Integer[queries.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(queries::get, SWEEP_ORDER));
+        return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+    }
+
+    private static class Chunk extends RecursiveAction {
+        private final int[] order;
+        private final int from;
+        private final int to;
+        private final IntConsumer query;
+
+        Chunk(int[] order, int from, int to, IntConsumer query) {
+            this.order = order;
+            this.from = from;
+            this.to = to;
+            this.query = query;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                for (int i = from; i < to; i++) {
+                    query.accept(order[i]);
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Chunk(order, from, mid, query), new Chunk(order, mid, to, query));
+            }
+        }
+    }
+}
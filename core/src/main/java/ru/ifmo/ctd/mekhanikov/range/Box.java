@@ -0,0 +1,40 @@
+package ru.ifmo.ctd.mekhanikov.range;
+
+public class Box {
+    private MultiPoint min;
+    private MultiPoint max;
+
+    public Box(MultiPoint min, MultiPoint max) {
+        if (min.getDimension() != max.getDimension()) {
+            throw new IllegalArgumentException("Corners have different dimensions");
+        }
+        this.min = min;
+        this.max = max;
+    }
+
+    public MultiPoint getMin() {
+        return min;
+    }
+
+    public MultiPoint getMax() {
+        return max;
+    }
+
+    public int getDimension() {
+        return min.getDimension();
+    }
+
+    public <T> boolean contains(T item, CoordinateAccessor<? super T> accessor) {
+        for (int i = 0; i < getDimension(); i++) {
+            double value = accessor.get(item, i);
+            if (value < min.get(i) || value > max.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean contains(MultiPoint p) {
+        return contains(p, MultiPoint::get);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.ifmo.ctd.mekhanikov.range;
+
+// tells the coordinates of the indexed items, dimensions are numbered from zero
+@FunctionalInterface
+public interface CoordinateAccessor<T> {
+    double get(T item, int dimension);
+}
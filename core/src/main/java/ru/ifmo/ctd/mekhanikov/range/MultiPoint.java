@@ -0,0 +1,39 @@
+package ru.ifmo.ctd.mekhanikov.range;
+
+import java.util.Arrays;
+
+public class MultiPoint {
+    private double[] coordinates;
+
+    public MultiPoint(double... coordinates) {
+        this.coordinates = coordinates.clone();
+    }
+
+    public int getDimension() {
+        return coordinates.length;
+    }
+
+    public double get(int dimension) {
+        return coordinates[dimension];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        MultiPoint point = (MultiPoint) o;
+
+        return Arrays.equals(coordinates, point.coordinates);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(coordinates);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(coordinates);
+    }
+}
@@ -0,0 +1,16 @@
+package ru.ifmo.ctd.mekhanikov.range;
+
+import java.util.Collection;
+
+public interface MultiRangeQuery<T> extends ReadOnlyMultiRangeQuery<T> {
+    void add(T item);
+    void remove(T item);
+
+    default void addAll(Collection<? extends T> items) {
+        items.forEach(this::add);
+    }
+
+    default void removeAll(Collection<? extends T> items) {
+        items.forEach(this::remove);
+    }
+}
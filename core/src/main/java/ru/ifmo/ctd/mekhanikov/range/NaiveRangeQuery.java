@@ -1,8 +1,11 @@
 package ru.ifmo.ctd.mekhanikov.range;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class NaiveRangeQuery implements RangeQuery {
     private List<Point> points = new ArrayList<>();
@@ -23,4 +26,23 @@ public class NaiveRangeQuery implements RangeQuery {
     public int getCount(Rectangle query) {
         return (int) points.stream().filter(query::contains).count();
     }
+
+    @Override
+    public Iterator<Point> iterator(Rectangle query) {
+        return stream(query).iterator();
+    }
+
+    @Override
+    public void forEach(Rectangle query, Consumer<? super Point> action) {
+        for (Point p : points) {
+            if (query.contains(p)) {
+                action.accept(p);
+            }
+        }
+    }
+
+    @Override
+    public Stream<Point> stream(Rectangle query) {
+        return points.stream().filter(query::contains);
+    }
 }
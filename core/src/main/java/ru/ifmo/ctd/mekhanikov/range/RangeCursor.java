@@ -0,0 +1,41 @@
+package ru.ifmo.ctd.mekhanikov.range;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// resumable position inside the result of a query, used for pagination
+public abstract class RangeCursor implements Iterator<Point> {
+
+    public static RangeCursor of(Iterator<Point> iterator) {
+        return new RangeCursor() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Point next() {
+                return iterator.next();
+            }
+        };
+    }
+
+    // returns the number of points actually skipped
+    public int skip(int count) {
+        int skipped = 0;
+        while (skipped < count && hasNext()) {
+            next();
+            skipped++;
+        }
+        return skipped;
+    }
+
+    public List<Point> next(int limit) {
+        List<Point> result = new ArrayList<>();
+        while (result.size() < limit && hasNext()) {
+            result.add(next());
+        }
+        return result;
+    }
+}
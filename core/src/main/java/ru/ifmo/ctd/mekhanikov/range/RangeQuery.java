@@ -1,10 +1,16 @@
 package ru.ifmo.ctd.mekhanikov.range;
 
-import java.util.List;
+import java.util.Collection;
 
-public interface RangeQuery {
+public interface RangeQuery extends ReadOnlyRangeQuery {
     void add(Point p);
     void remove(Point p);
-    List<Point> get(Rectangle query);
-    int getCount(Rectangle query);
+
+    default void addAll(Collection<? extends Point> points) {
+        points.forEach(this::add);
+    }
+
+    default void removeAll(Collection<? extends Point> points) {
+        points.forEach(this::remove);
+    }
 }
@@ -0,0 +1,10 @@
+package ru.ifmo.ctd.mekhanikov.range;
+
+import java.util.List;
+
+// queries over items with getDimension() coordinates
+public interface ReadOnlyMultiRangeQuery<T> {
+    int getDimension();
+    List<T> get(Box query);
+    int getCount(Box query);
+}
@@ -0,0 +1,74 @@
+package ru.ifmo.ctd.mekhanikov.range;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// queries of a RangeQuery, also implemented by views that cannot be modified
+public interface ReadOnlyRangeQuery {
+    List<Point> get(Rectangle query);
+    int getCount(Rectangle query);
+
+    default int getCount(double x1, double y1, double x2, double y2) {
+        return getCount(new Rectangle(new Point(x1, y1), new Point(x2, y2)));
+    }
+
+    default int[] getCounts(List<Rectangle> queries) {
+        return BatchQuery.getCounts(this, queries);
+    }
+
+    default List<List<Point>> getAll(List<Rectangle> queries) {
+        return BatchQuery.getAll(this, queries);
+    }
+
+    // lazily enumerates the points inside the query, the structure must not be modified meanwhile
+    Iterator<Point> iterator(Rectangle query);
+
+    default RangeCursor cursor(Rectangle query) {
+        return RangeCursor.of(iterator(query));
+    }
+
+    default List<Point> get(Rectangle query, int limit) {
+        return get(query, 0, limit);
+    }
+
+    default List<Point> get(Rectangle query, int offset, int limit) {
+        RangeCursor cursor = cursor(query);
+        cursor.skip(offset);
+        return cursor.next(limit);
+    }
+
+    default void forEach(Rectangle query, Consumer<? super Point> action) {
+        iterator(query).forEachRemaining(action);
+    }
+
+    // stops as soon as action returns false, returns whether all points were visited
+    default boolean forEachWhile(Rectangle query, Predicate<? super Point> action) {
+        Iterator<Point> iterator = iterator(query);
+        while (iterator.hasNext()) {
+            if (!action.test(iterator.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // folds the points inside the query, implementations may keep precomputed aggregates
+    default <A> A aggregate(Rectangle query, Aggregator<A> aggregator) {
+        A result = aggregator.identity();
+        Iterator<Point> iterator = iterator(query);
+        while (iterator.hasNext()) {
+            result = aggregator.combine(result, aggregator.lift(iterator.next()));
+        }
+        return result;
+    }
+
+    default Stream<Point> stream(Rectangle query) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(query), Spliterator.NONNULL), false);
+    }
+}
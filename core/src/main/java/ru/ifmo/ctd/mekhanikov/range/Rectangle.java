@@ -29,4 +29,27 @@ public class Rectangle {
         return p.getX() >= bottomLeft.getX() && p.getX() <= topRight.getX() &&
                 p.getY() >= bottomLeft.getY() && p.getY() <= topRight.getY();
     }
+
+    // by coordinates, so that rectangles can be used as cache keys
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        Rectangle rectangle = (Rectangle) o;
+
+        return Double.compare(rectangle.bottomLeft.getX(), bottomLeft.getX()) == 0 &&
+                Double.compare(rectangle.bottomLeft.getY(), bottomLeft.getY()) == 0 &&
+                Double.compare(rectangle.topRight.getX(), topRight.getX()) == 0 &&
+                Double.compare(rectangle.topRight.getY(), topRight.getY()) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Double.hashCode(bottomLeft.getX());
+        result = 31 * result + Double.hashCode(bottomLeft.getY());
+        result = 31 * result + Double.hashCode(topRight.getX());
+        result = 31 * result + Double.hashCode(topRight.getY());
+        return result;
+    }
 }
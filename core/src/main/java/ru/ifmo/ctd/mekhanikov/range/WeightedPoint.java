@@ -0,0 +1,35 @@
+package ru.ifmo.ctd.mekhanikov.range;
+
+public class WeightedPoint extends Point {
+    private double weight;
+
+    public WeightedPoint(double x, double y, double weight) {
+        super(x, y);
+        this.weight = weight;
+    }
+
+    public double getWeight() {
+        return weight;
+    }
+
+    // plain points weigh 1
+    public static double weightOf(Point p) {
+        return p instanceof WeightedPoint ? ((WeightedPoint) p).getWeight() : 1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return super.equals(o) && Double.compare(((WeightedPoint) o).weight, weight) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        long temp = Double.doubleToLongBits(weight);
+        return 31 * super.hashCode() + (int) (temp ^ (temp >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("(%f, %f; %f)", getX(), getY(), weight);
+    }
+}
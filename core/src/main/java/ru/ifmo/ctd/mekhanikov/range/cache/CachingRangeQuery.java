@@ -0,0 +1,260 @@
+package ru.ifmo.ctd.mekhanikov.range.cache;
+
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.RangeCursor;
+import ru.ifmo.ctd.mekhanikov.range.RangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Decorator keeping the results of the last maxSize distinct queries in LRU order. An update drops only the
+// cached queries that contain the changed point, which takes a pass over the cache, so it pays off when the
+// same queries are repeated between rare updates. get returns a copy of the cached result that the caller owns.
+// Lazy methods (iterator, cursor, forEach, ...) are passed through.
+// Concurrent reads are safe if the wrapped query tolerates them: the cache is guarded by a lock that is not held
+// while the wrapped query runs, and a result computed while an update was in progress is returned but not cached.
+public class CachingRangeQuery implements RangeQuery {
+
+    private final RangeQuery delegate;
+    private final Map<Rectangle, Entry> cache;
+    private final Lock lock = new ReentrantLock();
+    // incremented by every update, guarded by the lock
+    private long generation;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingRangeQuery(RangeQuery delegate, int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        this.delegate = delegate;
+        this.cache = new LinkedHashMap<Rectangle, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Rectangle, Entry> eldest) {
+                if (size() > maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public RangeQuery getDelegate() {
+        return delegate;
+    }
+
+    // number of cached queries
+    public int size() {
+        lock.lock();
+        try {
+            return cache.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRate() {
+        long hits = getHits();
+        long misses = getMisses();
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    // cached queries dropped because of updates
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    // cached queries dropped to make room for new ones
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        invalidations.reset();
+        evictions.reset();
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            cache.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void add(Point p) {
+        delegate.add(p);
+        invalidate(p);
+    }
+
+    @Override
+    public void remove(Point p) {
+        delegate.remove(p);
+        invalidate(p);
+    }
+
+    @Override
+    public void addAll(Collection<? extends Point> points) {
+        delegate.addAll(points);
+        invalidate(points);
+    }
+
+    @Override
+    public void removeAll(Collection<? extends Point> points) {
+        delegate.removeAll(points);
+        invalidate(points);
+    }
+
+    @Override
+    public List<Point> get(Rectangle query) {
+        long start;
+        lock.lock();
+        try {
+            Entry entry = cache.get(query);
+            if (entry != null && entry.result != null) {
+                hits.increment();
+                return new ArrayList<>(entry.result);
+            }
+            start = generation;
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+        List<Point> result = delegate.get(query);
+        List<Point> cached = new ArrayList<>(result);
+        lock.lock();
+        try {
+            if (generation == start) {
+                Entry entry = cache.computeIfAbsent(query, q -> new Entry());
+                entry.result = cached;
+                entry.count = cached.size();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public int getCount(Rectangle query) {
+        long start;
+        lock.lock();
+        try {
+            Entry entry = cache.get(query);
+            if (entry != null) {
+                hits.increment();
+                return entry.count;
+            }
+            start = generation;
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+        int count = delegate.getCount(query);
+        lock.lock();
+        try {
+            if (generation == start && !cache.containsKey(query)) {
+                Entry entry = new Entry();
+                entry.count = count;
+                cache.put(query, entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return count;
+    }
+
+    @Override
+    public Iterator<Point> iterator(Rectangle query) {
+        return delegate.iterator(query);
+    }
+
+    @Override
+    public RangeCursor cursor(Rectangle query) {
+        return delegate.cursor(query);
+    }
+
+    private void invalidate(Point p) {
+        lock.lock();
+        try {
+            generation++;
+            Iterator<Rectangle> iterator = cache.keySet().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().contains(p)) {
+                    iterator.remove();
+                    invalidations.increment();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // queries disjoint from the bounding box of the points are skipped without looking at the points
+    private void invalidate(Collection<? extends Point> points) {
+        if (points.isEmpty()) {
+            return;
+        }
+        double x1 = Double.POSITIVE_INFINITY;
+        double y1 = Double.POSITIVE_INFINITY;
+        double x2 = Double.NEGATIVE_INFINITY;
+        double y2 = Double.NEGATIVE_INFINITY;
+        for (Point p : points) {
+            x1 = Math.min(x1, p.getX());
+            y1 = Math.min(y1, p.getY());
+            x2 = Math.max(x2, p.getX());
+            y2 = Math.max(y2, p.getY());
+        }
+        lock.lock();
+        try {
+            generation++;
+            Iterator<Rectangle> iterator = cache.keySet().iterator();
+            while (iterator.hasNext()) {
+                Rectangle query = iterator.next();
+                Point bl = query.getBottomLeft();
+                Point tr = query.getTopRight();
+                if (bl.getX() > x2 || tr.getX() < x1 || bl.getY() > y2 || tr.getY() < y1) {
+                    continue;
+                }
+                for (Point p : points) {
+                    if (query.contains(p)) {
+                        iterator.remove();
+                        invalidations.increment();
+                        break;
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // result is null until get is called for the query
+    private static class Entry {
+        int count;
+        List<Point> result;
+    }
+}
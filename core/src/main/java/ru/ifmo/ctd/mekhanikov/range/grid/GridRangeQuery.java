@@ -0,0 +1,322 @@
+package ru.ifmo.ctd.mekhanikov.range.grid;
+
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.RangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// Uniform grid over the bounding box of the points, every cell keeps its coordinates in plain arrays.
+// Add and remove take O(1) expected on evenly spread data. A query counts the cells strictly inside its range of
+// columns and rows by their sizes and checks the points of the border cells only. The grid is rebuilt with about
+// CELL_SIZE points per cell and the aspect ratio of the data whenever the size doubles or drops to a quarter,
+// so growing data is rebuilt O(log n) times. A point outside of the grid is kept in the nearest border cell,
+// border cells are always checked point by point, and the grid grows over such points with a margin around
+// the data at the next rebuild, which also happens once they make up half of the points the grid was built with.
+public class GridRangeQuery implements RangeQuery {
+
+    private static final int CELL_SIZE = 8;
+    private static final int MIN_REBUILD_SIZE = 64;
+    // share of the span added on each side when points fell outside of the grid
+    private static final double MARGIN = 0.25;
+
+    private double minX;
+    private double minY;
+    private double maxX;
+    private double maxY;
+    private double cellWidth;
+    private double cellHeight;
+    private int columns;
+    private int rows;
+    private double[][] xs;
+    private double[][] ys;
+    private Point[][] points;
+    private int[] counts;
+    private int size;
+    // size when the grid was built
+    private int builtSize;
+    // points added outside of the grid since it was built
+    private int outside;
+
+    public GridRangeQuery() {
+        build(Double.NaN, Double.NaN, Double.NaN, Double.NaN, 1, 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void add(Point p) {
+        if (isOutside(p)) {
+            outside++;
+        }
+        insert(p);
+        size++;
+        if (needsRebuild(size, outside)) {
+            rebuild(getAll());
+        }
+    }
+
+    @Override
+    public void remove(Point p) {
+        int cell = cellOf(p.getX(), p.getY());
+        Point[] cellPoints = points[cell];
+        int count = counts[cell];
+        for (int i = 0; i < count; i++) {
+            if (cellPoints[i].equals(p)) {
+                int last = count - 1;
+                cellPoints[i] = cellPoints[last];
+                xs[cell][i] = xs[cell][last];
+                ys[cell][i] = ys[cell][last];
+                cellPoints[last] = null;
+                counts[cell] = last;
+                size--;
+                if (size < builtSize / 4 && builtSize >= MIN_REBUILD_SIZE) {
+                    rebuild(getAll());
+                }
+                return;
+            }
+        }
+    }
+
+    // the same as adding the points one by one, except that a batch which trips the thresholds of add
+    // is rebuilt with the grid once, instead of being inserted into the old one first
+    @Override
+    public void addAll(Collection<? extends Point> points) {
+        for (Point p : points) {
+            if (isOutside(p)) {
+                outside++;
+            }
+        }
+        if (needsRebuild(size + points.size(), outside)) {
+            List<Point> all = getAll();
+            all.addAll(points);
+            rebuild(all);
+            return;
+        }
+        for (Point p : points) {
+            insert(p);
+        }
+        size += points.size();
+    }
+
+    @Override
+    public List<Point> get(Rectangle query) {
+        List<Point> result = new ArrayList<>();
+        iterator(query).forEachRemaining(result::add);
+        return result;
+    }
+
+    @Override
+    public int getCount(Rectangle query) {
+        Point bl = query.getBottomLeft();
+        Point tr = query.getTopRight();
+        return getCount(bl.getX(), bl.getY(), tr.getX(), tr.getY());
+    }
+
+    // Column and row of a coordinate are monotone in it, so the points of the cells strictly between the cells
+    // of the query corners are inside the query without checking.
+    @Override
+    public int getCount(double x1, double y1, double x2, double y2) {
+        if (size == 0 || !(x1 <= x2 && y1 <= y2)) {
+            return 0;
+        }
+        int column1 = column(x1);
+        int column2 = column(x2);
+        int row1 = row(y1);
+        int row2 = row(y2);
+        int count = 0;
+        for (int row = row1; row <= row2; row++) {
+            boolean rowInside = row1 < row && row < row2;
+            for (int column = column1; column <= column2; column++) {
+                int cell = row * columns + column;
+                if (rowInside && column1 < column && column < column2) {
+                    count += counts[cell];
+                } else {
+                    double[] cellXs = xs[cell];
+                    double[] cellYs = ys[cell];
+                    for (int i = 0; i < counts[cell]; i++) {
+                        count += cellXs[i] >= x1 & cellXs[i] <= x2 & cellYs[i] >= y1 & cellYs[i] <= y2 ? 1 : 0;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public Iterator<Point> iterator(Rectangle query) {
+        return new CellIterator(query);
+    }
+
+    private boolean isOutside(Point p) {
+        return !(p.getX() >= minX && p.getX() <= maxX && p.getY() >= minY && p.getY() <= maxY);
+    }
+
+    private boolean needsRebuild(int size, int outside) {
+        return (size > 2 * builtSize || 2 * outside > builtSize) && size >= MIN_REBUILD_SIZE;
+    }
+
+    private List<Point> getAll() {
+        List<Point> all = new ArrayList<>(size + 1);
+        for (int cell = 0; cell < counts.length; cell++) {
+            all.addAll(Arrays.asList(points[cell]).subList(0, counts[cell]));
+        }
+        return all;
+    }
+
+    private void rebuild(List<Point> all) {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (Point p : all) {
+            minX = Math.min(minX, p.getX());
+            minY = Math.min(minY, p.getY());
+            maxX = Math.max(maxX, p.getX());
+            maxY = Math.max(maxY, p.getY());
+        }
+        double width = maxX - minX;
+        double height = maxY - minY;
+        if (outside > 0) {
+            minX -= MARGIN * width;
+            maxX += MARGIN * width;
+            minY -= MARGIN * height;
+            maxY += MARGIN * height;
+        }
+        // a degenerate side gets a single cell
+        int cells = Math.max(1, all.size() / CELL_SIZE);
+        int columns;
+        int rows;
+        if (width > 0 && height > 0) {
+            columns = (int) Math.max(1, Math.min(cells, Math.round(Math.sqrt(cells * width / height))));
+            rows = Math.max(1, cells / columns);
+        } else {
+            columns = width > 0 ? cells : 1;
+            rows = height > 0 ? cells : 1;
+        }
+        build(minX, minY, maxX, maxY, columns, rows);
+        for (Point p : all) {
+            insert(p);
+        }
+        size = all.size();
+        builtSize = size;
+        outside = 0;
+    }
+
+    private void build(double minX, double minY, double maxX, double maxY, int columns, int rows) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.columns = columns;
+        this.rows = rows;
+        cellWidth = maxX > minX ? (maxX - minX) / columns : 1;
+        cellHeight = maxY > minY ? (maxY - minY) / rows : 1;
+        xs = new double[columns * rows][];
+        ys = new double[columns * rows][];
+        points = new Point[columns * rows][];
+        counts = new int[columns * rows];
+        for (int cell = 0; cell < counts.length; cell++) {
+            xs[cell] = new double[CELL_SIZE];
+            ys[cell] = new double[CELL_SIZE];
+            points[cell] = new Point[CELL_SIZE];
+        }
+    }
+
+    private void insert(Point p) {
+        int cell = cellOf(p.getX(), p.getY());
+        int count = counts[cell];
+        if (count == points[cell].length) {
+            xs[cell] = Arrays.copyOf(xs[cell], 2 * count);
+            ys[cell] = Arrays.copyOf(ys[cell], 2 * count);
+            points[cell] = Arrays.copyOf(points[cell], 2 * count);
+        }
+        xs[cell][count] = p.getX();
+        ys[cell][count] = p.getY();
+        points[cell][count] = p;
+        counts[cell] = count + 1;
+    }
+
+    private int cellOf(double x, double y) {
+        return row(y) * columns + column(x);
+    }
+
+    // coordinates outside the grid are clamped to the border cells
+    private int column(double x) {
+        return Math.max(0, Math.min(columns - 1, (int) ((x - minX) / cellWidth)));
+    }
+
+    private int row(double y) {
+        return Math.max(0, Math.min(rows - 1, (int) ((y - minY) / cellHeight)));
+    }
+
+    // cells of the query in row order, points of the border cells are checked
+    private class CellIterator implements Iterator<Point> {
+        private final double x1;
+        private final double y1;
+        private final double x2;
+        private final double y2;
+        private final int column1;
+        private final int column2;
+        private final int row1;
+        private final int row2;
+        private int row;
+        private int column;
+        private int cell = -1;
+        private boolean checked;
+        private int index;
+        private int end;
+
+        CellIterator(Rectangle query) {
+            x1 = query.getBottomLeft().getX();
+            y1 = query.getBottomLeft().getY();
+            x2 = query.getTopRight().getX();
+            y2 = query.getTopRight().getY();
+            column1 = column(x1);
+            column2 = column(x2);
+            row1 = row(y1);
+            row2 = size == 0 || !(x1 <= x2 && y1 <= y2) ? row1 - 1 : row(y2);
+            row = row1;
+            column = column1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (true) {
+                while (index < end) {
+                    if (!checked || (xs[cell][index] >= x1 && xs[cell][index] <= x2
+                            && ys[cell][index] >= y1 && ys[cell][index] <= y2)) {
+                        return true;
+                    }
+                    index++;
+                }
+                if (row > row2) {
+                    return false;
+                }
+                cell = row * columns + column;
+                checked = !(row1 < row && row < row2 && column1 < column && column < column2);
+                index = 0;
+                end = counts[cell];
+                if (++column > column2) {
+                    column = column1;
+                    row++;
+                }
+            }
+        }
+
+        @Override
+        public Point next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return points[cell][index++];
+        }
+    }
+}
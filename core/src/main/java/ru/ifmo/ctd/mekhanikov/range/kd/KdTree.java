@@ -0,0 +1,261 @@
+package ru.ifmo.ctd.mekhanikov.range.kd;
+
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.RangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// Implicit kd-tree: the subtree over positions [lo, hi) has its median at mid = (lo + hi) / 2, points before it
+// are not greater and points after it are not less in the split coordinate, which is x on even depths and y on odd.
+// Needs O(n) memory, queries take O(sqrt(n) + k).
+public class KdTree implements RangeQuery {
+
+    private final Point[] points;
+    private final double[] xs;
+    private final double[] ys;
+
+    private KdTree(Point[] points) {
+        this.points = points;
+        int n = points.length;
+        xs = new double[n];
+        ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = points[i].getX();
+            ys[i] = points[i].getY();
+        }
+        build(0, n, 0);
+    }
+
+    public static KdTree build(Collection<? extends Point> points) {
+        return new KdTree(points.toArray(new Point[points.size()]));
+    }
+
+    public int size() {
+        return points.length;
+    }
+
+    @Override
+    public void add(Point p) {
+        throw new UnsupportedOperationException("KdTree is immutable");
+    }
+
+    @Override
+    public void remove(Point p) {
+        throw new UnsupportedOperationException("KdTree is immutable");
+    }
+
+    @Override
+    public List<Point> get(Rectangle query) {
+        List<Point> result = new ArrayList<>();
+        iterator(query).forEachRemaining(result::add);
+        return result;
+    }
+
+    @Override
+    public int getCount(Rectangle query) {
+        Point bl = query.getBottomLeft();
+        Point tr = query.getTopRight();
+        return getCount(bl.getX(), bl.getY(), tr.getX(), tr.getY());
+    }
+
+    @Override
+    public int getCount(double x1, double y1, double x2, double y2) {
+        return count(0, points.length, 0, x1, y1, x2, y2,
+                Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
+
+    @Override
+    public Iterator<Point> iterator(Rectangle query) {
+        return new KdIterator(query);
+    }
+
+    // (minX, minY, maxX, maxY) is the cell of the subtree given by the splits above it
+    private int count(int lo, int hi, int depth, double x1, double y1, double x2, double y2,
+                      double minX, double minY, double maxX, double maxY) {
+        if (lo >= hi) {
+            return 0;
+        }
+        if (x1 <= minX && maxX <= x2 && y1 <= minY && maxY <= y2) {
+            return hi - lo;
+        }
+        int mid = (lo + hi) >>> 1;
+        int count = contains(mid, x1, y1, x2, y2) ? 1 : 0;
+        if (depth % 2 == 0) {
+            if (x1 <= xs[mid]) {
+                count += count(lo, mid, depth + 1, x1, y1, x2, y2, minX, minY, xs[mid], maxY);
+            }
+            if (xs[mid] <= x2) {
+                count += count(mid + 1, hi, depth + 1, x1, y1, x2, y2, xs[mid], minY, maxX, maxY);
+            }
+        } else {
+            if (y1 <= ys[mid]) {
+                count += count(lo, mid, depth + 1, x1, y1, x2, y2, minX, minY, maxX, ys[mid]);
+            }
+            if (ys[mid] <= y2) {
+                count += count(mid + 1, hi, depth + 1, x1, y1, x2, y2, minX, ys[mid], maxX, maxY);
+            }
+        }
+        return count;
+    }
+
+    private boolean contains(int i, double x1, double y1, double x2, double y2) {
+        return xs[i] >= x1 && xs[i] <= x2 && ys[i] >= y1 && ys[i] <= y2;
+    }
+
+    private void build(int lo, int hi, int depth) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi, mid, depth % 2 == 0 ? xs : ys);
+        build(lo, mid, depth + 1);
+        build(mid + 1, hi, depth + 1);
+    }
+
+    // quickselect, puts the k-th smallest by keys at k
+    private void select(int lo, int hi, int k, double[] keys) {
+        hi--;
+        while (lo < hi) {
+            double pivot = keys[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i++;
+                }
+                while (keys[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        Point p = points[i];
+        points[i] = points[j];
+        points[j] = p;
+        double x = xs[i];
+        xs[i] = xs[j];
+        xs[j] = x;
+        double y = ys[i];
+        ys[i] = ys[j];
+        ys[j] = y;
+    }
+
+    // depth-first walk with an explicit stack, subtrees whose cells are inside the query are emitted as a whole
+    private class KdIterator implements Iterator<Point> {
+        private final double x1;
+        private final double y1;
+        private final double x2;
+        private final double y2;
+        private int[] bounds = new int[48];
+        private double[] cells = new double[64];
+        private int stackSize;
+        private int index;
+        private int end;
+        private boolean checked;
+
+        KdIterator(Rectangle query) {
+            x1 = query.getBottomLeft().getX();
+            y1 = query.getBottomLeft().getY();
+            x2 = query.getTopRight().getX();
+            y2 = query.getTopRight().getY();
+            push(0, points.length, 0, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                    Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (true) {
+                while (index < end) {
+                    if (!checked || contains(index, x1, y1, x2, y2)) {
+                        return true;
+                    }
+                    index++;
+                }
+                if (stackSize == 0) {
+                    return false;
+                }
+                pop();
+            }
+        }
+
+        @Override
+        public Point next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return points[index++];
+        }
+
+        private void pop() {
+            stackSize--;
+            int lo = bounds[3 * stackSize];
+            int hi = bounds[3 * stackSize + 1];
+            int depth = bounds[3 * stackSize + 2];
+            double minX = cells[4 * stackSize];
+            double minY = cells[4 * stackSize + 1];
+            double maxX = cells[4 * stackSize + 2];
+            double maxY = cells[4 * stackSize + 3];
+            if (x1 <= minX && maxX <= x2 && y1 <= minY && maxY <= y2) {
+                index = lo;
+                end = hi;
+                checked = false;
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            index = mid;
+            end = mid + 1;
+            checked = true;
+            if (depth % 2 == 0) {
+                if (xs[mid] <= x2) {
+                    push(mid + 1, hi, depth + 1, xs[mid], minY, maxX, maxY);
+                }
+                if (x1 <= xs[mid]) {
+                    push(lo, mid, depth + 1, minX, minY, xs[mid], maxY);
+                }
+            } else {
+                if (ys[mid] <= y2) {
+                    push(mid + 1, hi, depth + 1, minX, ys[mid], maxX, maxY);
+                }
+                if (y1 <= ys[mid]) {
+                    push(lo, mid, depth + 1, minX, minY, maxX, ys[mid]);
+                }
+            }
+        }
+
+        private void push(int lo, int hi, int depth, double minX, double minY, double maxX, double maxY) {
+            if (lo >= hi) {
+                return;
+            }
+            if (3 * stackSize + 3 > bounds.length) {
+                bounds = Arrays.copyOf(bounds, 2 * bounds.length);
+                cells = Arrays.copyOf(cells, 2 * cells.length);
+            }
+            bounds[3 * stackSize] = lo;
+            bounds[3 * stackSize + 1] = hi;
+            bounds[3 * stackSize + 2] = depth;
+            cells[4 * stackSize] = minX;
+            cells[4 * stackSize + 1] = minY;
+            cells[4 * stackSize + 2] = maxX;
+            cells[4 * stackSize + 3] = maxY;
+            stackSize++;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package ru.ifmo.ctd.mekhanikov.range.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Histogram of non-negative values with log-linear buckets in the manner of HdrHistogram: values below
+// 2 * SUB_BUCKETS are exact, larger ones fall into SUB_BUCKETS buckets per power of two, so a reported
+// percentile is at most 1 / SUB_BUCKETS above the true one. Recording is lock free and allocates nothing.
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int EXACT = 2 * SUB_BUCKETS;
+    // octaves from EXACT up to Long.MAX_VALUE
+    private static final int BUCKETS = EXACT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+        counts.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    // not atomic with respect to concurrent records, each of which is either counted or not
+    public Summary getSummary() {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        long max = this.max.get();
+        long recorded = count.sum();
+        double mean = recorded == 0 ? 0 : (double) sum.sum() / recorded;
+        return new Summary(total, mean, percentile(snapshot, total, 0.5, max), percentile(snapshot, total, 0.9, max),
+                percentile(snapshot, total, 0.99, max), percentile(snapshot, total, 0.999, max), max);
+    }
+
+    // highest value of the bucket holding the value of the given rank
+    private static long percentile(long[] counts, long total, double quantile, long max) {
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, highestValue(i));
+            }
+        }
+        return 0;
+    }
+
+    static int index(long value) {
+        if (value < EXACT) {
+            return (int) value;
+        }
+        int octave = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (octave - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return EXACT + (octave - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestValue(int index) {
+        if (index < EXACT) {
+            return index;
+        }
+        int octave = (index - EXACT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        int subBucket = (index - EXACT) % SUB_BUCKETS;
+        int shift = octave - SUB_BUCKET_BITS;
+        long lowest = (long) (SUB_BUCKETS + subBucket) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    public static final class Summary {
+        private final long count;
+        private final double mean;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+        private final long p999;
+        private final long max;
+
+        Summary(long count, double mean, long p50, long p90, long p99, long p999, long max) {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP90() {
+            return p90;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getP999() {
+            return p999;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d mean=%.1f p50=%d p90=%d p99=%d p99.9=%d max=%d",
+                    count, mean, p50, p90, p99, p999, max);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package ru.ifmo.ctd.mekhanikov.range.metrics;
+
+// JMX view of a MetricsRangeQuery, the snapshot is exposed as composite data. The tree shape is found by walking
+// the whole tree, so it is an operation to invoke explicitly rather than an attribute that consoles poll.
+public interface MetricsMXBean {
+    MetricsSnapshot getSnapshot();
+
+    int computeHeight();
+
+    long computeNodeCount();
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    void reset();
+}
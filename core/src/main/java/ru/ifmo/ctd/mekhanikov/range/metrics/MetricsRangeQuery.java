@@ -0,0 +1,189 @@
+package ru.ifmo.ctd.mekhanikov.range.metrics;
+
+import ru.ifmo.ctd.mekhanikov.range.Aggregator;
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.RangeCursor;
+import ru.ifmo.ctd.mekhanikov.range.RangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+import ru.ifmo.ctd.mekhanikov.range.tree.RangeTree;
+import ru.ifmo.ctd.mekhanikov.range.tree.TreeCounters;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Decorator recording the latency of getCount and get, the sizes of get results and the number of updates.
+// Lazy methods (iterator, cursor, forEach, ...) are passed through without timing. While disabled every call
+// costs one volatile read on top of the wrapped one; the counters of a wrapped RangeTree are kept by the tree.
+public class MetricsRangeQuery implements RangeQuery, MetricsMXBean {
+
+    private final RangeQuery delegate;
+    private final Histogram countLatency = new Histogram();
+    private final Histogram getLatency = new Histogram();
+    private final Histogram resultSizes = new Histogram();
+    private final LongAdder adds = new LongAdder();
+    private final LongAdder removes = new LongAdder();
+    private volatile boolean enabled = true;
+
+    public MetricsRangeQuery(RangeQuery delegate) {
+        this.delegate = delegate;
+    }
+
+    public RangeQuery getDelegate() {
+        return delegate;
+    }
+
+    public void register(ObjectName name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+    }
+
+    @Override
+    public MetricsSnapshot getSnapshot() {
+        long searches = -1;
+        long subtrees = -1;
+        long nodesVisited = -1;
+        long rebuilds = -1;
+        long rebuiltNodes = -1;
+        if (delegate instanceof RangeTree && ((RangeTree) delegate).getCounters() != null) {
+            TreeCounters counters = ((RangeTree) delegate).getCounters();
+            searches = counters.getSearches();
+            subtrees = counters.getSubtrees();
+            nodesVisited = counters.getNodesVisited();
+            rebuilds = counters.getRebuilds();
+            rebuiltNodes = counters.getRebuiltNodes();
+        }
+        return new MetricsSnapshot(countLatency.getSummary(), getLatency.getSummary(), resultSizes.getSummary(),
+                adds.sum(), removes.sum(), searches, subtrees, nodesVisited, rebuilds, rebuiltNodes);
+    }
+
+    // height of the x-tree of a wrapped RangeTree, O(n), -1 for other structures
+    @Override
+    public int computeHeight() {
+        return delegate instanceof RangeTree ? ((RangeTree) delegate).getHeight() : -1;
+    }
+
+    // nodes of a wrapped RangeTree including the secondary trees, O(n log n), -1 for other structures
+    @Override
+    public long computeNodeCount() {
+        return delegate instanceof RangeTree ? ((RangeTree) delegate).getNodeCount() : -1;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void reset() {
+        countLatency.reset();
+        getLatency.reset();
+        resultSizes.reset();
+        adds.reset();
+        removes.reset();
+        if (delegate instanceof RangeTree && ((RangeTree) delegate).getCounters() != null) {
+            ((RangeTree) delegate).getCounters().reset();
+        }
+    }
+
+    @Override
+    public void add(Point p) {
+        delegate.add(p);
+        if (enabled) {
+            adds.increment();
+        }
+    }
+
+    @Override
+    public void remove(Point p) {
+        delegate.remove(p);
+        if (enabled) {
+            removes.increment();
+        }
+    }
+
+    @Override
+    public void addAll(Collection<? extends Point> points) {
+        delegate.addAll(points);
+        if (enabled) {
+            adds.add(points.size());
+        }
+    }
+
+    @Override
+    public void removeAll(Collection<? extends Point> points) {
+        delegate.removeAll(points);
+        if (enabled) {
+            removes.add(points.size());
+        }
+    }
+
+    @Override
+    public List<Point> get(Rectangle query) {
+        if (!enabled) {
+            return delegate.get(query);
+        }
+        long start = System.nanoTime();
+        List<Point> result = delegate.get(query);
+        getLatency.record(System.nanoTime() - start);
+        resultSizes.record(result.size());
+        return result;
+    }
+
+    @Override
+    public int getCount(Rectangle query) {
+        if (!enabled) {
+            return delegate.getCount(query);
+        }
+        long start = System.nanoTime();
+        int count = delegate.getCount(query);
+        countLatency.record(System.nanoTime() - start);
+        return count;
+    }
+
+    @Override
+    public int getCount(double x1, double y1, double x2, double y2) {
+        if (!enabled) {
+            return delegate.getCount(x1, y1, x2, y2);
+        }
+        long start = System.nanoTime();
+        int count = delegate.getCount(x1, y1, x2, y2);
+        countLatency.record(System.nanoTime() - start);
+        return count;
+    }
+
+    @Override
+    public Iterator<Point> iterator(Rectangle query) {
+        return delegate.iterator(query);
+    }
+
+    @Override
+    public RangeCursor cursor(Rectangle query) {
+        return delegate.cursor(query);
+    }
+
+    @Override
+    public void forEach(Rectangle query, Consumer<? super Point> action) {
+        delegate.forEach(query, action);
+    }
+
+    @Override
+    public boolean forEachWhile(Rectangle query, Predicate<? super Point> action) {
+        return delegate.forEachWhile(query, action);
+    }
+
+    @Override
+    public <A> A aggregate(Rectangle query, Aggregator<A> aggregator) {
+        return delegate.aggregate(query, aggregator);
+    }
+}
@@ -0,0 +1,84 @@
+package ru.ifmo.ctd.mekhanikov.range.metrics;
+
+// Metrics of a MetricsRangeQuery at some moment. Latencies are in nanoseconds. Tree statistics are -1 unless
+// the wrapped structure is a RangeTree created with TreeCounters.
+public final class MetricsSnapshot {
+    private final Histogram.Summary countLatency;
+    private final Histogram.Summary getLatency;
+    private final Histogram.Summary resultSizes;
+    private final long adds;
+    private final long removes;
+    private final long searches;
+    private final long subtrees;
+    private final long nodesVisited;
+    private final long rebuilds;
+    private final long rebuiltNodes;
+
+    MetricsSnapshot(Histogram.Summary countLatency, Histogram.Summary getLatency, Histogram.Summary resultSizes,
+                    long adds, long removes, long searches, long subtrees, long nodesVisited,
+                    long rebuilds, long rebuiltNodes) {
+        this.countLatency = countLatency;
+        this.getLatency = getLatency;
+        this.resultSizes = resultSizes;
+        this.adds = adds;
+        this.removes = removes;
+        this.searches = searches;
+        this.subtrees = subtrees;
+        this.nodesVisited = nodesVisited;
+        this.rebuilds = rebuilds;
+        this.rebuiltNodes = rebuiltNodes;
+    }
+
+    public Histogram.Summary getCountLatency() {
+        return countLatency;
+    }
+
+    public Histogram.Summary getGetLatency() {
+        return getLatency;
+    }
+
+    // sizes of the lists returned by get
+    public Histogram.Summary getResultSizes() {
+        return resultSizes;
+    }
+
+    public long getAdds() {
+        return adds;
+    }
+
+    public long getRemoves() {
+        return removes;
+    }
+
+    public long getSearches() {
+        return searches;
+    }
+
+    public long getSubtrees() {
+        return subtrees;
+    }
+
+    public double getSubtreesPerSearch() {
+        return searches <= 0 ? 0 : (double) subtrees / searches;
+    }
+
+    public long getNodesVisited() {
+        return nodesVisited;
+    }
+
+    public long getRebuilds() {
+        return rebuilds;
+    }
+
+    public long getRebuiltNodes() {
+        return rebuiltNodes;
+    }
+
+    @Override
+    public String toString() {
+        return "count: " + countLatency + "\nget: " + getLatency + "\nresult sizes: " + resultSizes
+                + "\nadds=" + adds + " removes=" + removes
+                + "\nsearches=" + searches + " subtrees=" + subtrees + " nodesVisited=" + nodesVisited
+                + " rebuilds=" + rebuilds + " rebuiltNodes=" + rebuiltNodes;
+    }
+}
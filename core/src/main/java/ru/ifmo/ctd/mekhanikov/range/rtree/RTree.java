@@ -0,0 +1,295 @@
+package ru.ifmo.ctd.mekhanikov.range.rtree;
+
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.RangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.function.ToDoubleFunction;
+
+// R-tree bulk loaded by Sort-Tile-Recursive packing: the entries of a level are sorted by x, cut into
+// sqrt(n / NODE_SIZE) vertical slices, every slice is sorted by y and packed into nodes of NODE_SIZE entries.
+// Nodes are stored in breadth-first order, so the children of a node and the points of a leaf are contiguous.
+public class RTree implements RangeQuery {
+
+    private static final int NODE_SIZE = 16;
+
+    private final Point[] points;
+    private final double[] xs;
+    private final double[] ys;
+    private final int leaves;
+    private final double[] minX;
+    private final double[] minY;
+    private final double[] maxX;
+    private final double[] maxY;
+    // children of an inner node i are nodes from[i]..to[i]-1, points of a leaf are points[from[i]..to[i])
+    private final int[] from;
+    private final int[] to;
+    private final int[] sizes;
+
+    private RTree(Point[] points) {
+        int n = points.length;
+        List<Entry> level = new ArrayList<>();
+        pack(Arrays.asList(points), Point::getX, Point::getY);
+        for (int i = 0; i < n; i += NODE_SIZE) {
+            level.add(new Entry(points, i, Math.min(n, i + NODE_SIZE)));
+        }
+        leaves = level.size();
+        while (level.size() > 1) {
+            pack(level, Entry::centerX, Entry::centerY);
+            List<Entry> parents = new ArrayList<>();
+            for (int i = 0; i < level.size(); i += NODE_SIZE) {
+                parents.add(new Entry(level.subList(i, Math.min(level.size(), i + NODE_SIZE))));
+            }
+            level = parents;
+        }
+
+        List<Entry> order = new ArrayList<>();
+        Queue<Entry> queue = new ArrayDeque<>(level);
+        while (!queue.isEmpty()) {
+            Entry entry = queue.poll();
+            order.add(entry);
+            queue.addAll(entry.children);
+        }
+        int nodes = order.size();
+        this.points = new Point[n];
+        xs = new double[n];
+        ys = new double[n];
+        minX = new double[nodes];
+        minY = new double[nodes];
+        maxX = new double[nodes];
+        maxY = new double[nodes];
+        from = new int[nodes];
+        to = new int[nodes];
+        sizes = new int[nodes];
+        int nextNode = 1;
+        int nextPoint = 0;
+        for (int i = 0; i < nodes; i++) {
+            Entry entry = order.get(i);
+            minX[i] = entry.minX;
+            minY[i] = entry.minY;
+            maxX[i] = entry.maxX;
+            maxY[i] = entry.maxY;
+            sizes[i] = entry.size;
+            if (entry.children.isEmpty()) {
+                from[i] = nextPoint;
+                for (int j = entry.from; j < entry.to; j++) {
+                    this.points[nextPoint] = points[j];
+                    xs[nextPoint] = points[j].getX();
+                    ys[nextPoint] = points[j].getY();
+                    nextPoint++;
+                }
+                to[i] = nextPoint;
+            } else {
+                from[i] = nextNode;
+                nextNode += entry.children.size();
+                to[i] = nextNode;
+            }
+        }
+    }
+
+    public static RTree build(Collection<? extends Point> points) {
+        return new RTree(points.toArray(new Point[points.size()]));
+    }
+
+    public int size() {
+        return points.length;
+    }
+
+    @Override
+    public void add(Point p) {
+        throw new UnsupportedOperationException("RTree is immutable");
+    }
+
+    @Override
+    public void remove(Point p) {
+        throw new UnsupportedOperationException("RTree is immutable");
+    }
+
+    @Override
+    public List<Point> get(Rectangle query) {
+        List<Point> result = new ArrayList<>();
+        iterator(query).forEachRemaining(result::add);
+        return result;
+    }
+
+    @Override
+    public int getCount(Rectangle query) {
+        Point bl = query.getBottomLeft();
+        Point tr = query.getTopRight();
+        return getCount(bl.getX(), bl.getY(), tr.getX(), tr.getY());
+    }
+
+    @Override
+    public int getCount(double x1, double y1, double x2, double y2) {
+        return sizes.length == 0 ? 0 : count(0, x1, y1, x2, y2);
+    }
+
+    @Override
+    public Iterator<Point> iterator(Rectangle query) {
+        return new NodeIterator(query);
+    }
+
+    private int count(int node, double x1, double y1, double x2, double y2) {
+        if (minX[node] > x2 || maxX[node] < x1 || minY[node] > y2 || maxY[node] < y1) {
+            return 0;
+        }
+        if (x1 <= minX[node] && maxX[node] <= x2 && y1 <= minY[node] && maxY[node] <= y2) {
+            return sizes[node];
+        }
+        int count = 0;
+        if (node < sizes.length - leaves) {
+            for (int child = from[node]; child < to[node]; child++) {
+                count += count(child, x1, y1, x2, y2);
+            }
+        } else {
+            for (int i = from[node]; i < to[node]; i++) {
+                if (xs[i] >= x1 && xs[i] <= x2 && ys[i] >= y1 && ys[i] <= y2) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    // sorts entries into STR order, consecutive runs of NODE_SIZE entries then form the nodes
+    private static <T> void pack(List<T> entries, ToDoubleFunction<T> x, ToDoubleFunction<T> y) {
+        entries.sort(Comparator.comparingDouble(x));
+        int nodes = (entries.size() + NODE_SIZE - 1) / NODE_SIZE;
+        int slice = NODE_SIZE * (int) Math.ceil(Math.sqrt(nodes));
+        for (int i = 0; i < entries.size(); i += slice) {
+            entries.subList(i, Math.min(entries.size(), i + slice)).sort(Comparator.comparingDouble(y));
+        }
+    }
+
+    private static class Entry {
+        final List<Entry> children;
+        final int from;
+        final int to;
+        final int size;
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+
+        Entry(Point[] points, int from, int to) {
+            this.children = new ArrayList<>();
+            this.from = from;
+            this.to = to;
+            this.size = to - from;
+            for (int i = from; i < to; i++) {
+                extend(points[i].getX(), points[i].getY(), points[i].getX(), points[i].getY());
+            }
+        }
+
+        Entry(List<Entry> children) {
+            this.children = new ArrayList<>(children);
+            this.from = 0;
+            this.to = 0;
+            int size = 0;
+            for (Entry child : children) {
+                extend(child.minX, child.minY, child.maxX, child.maxY);
+                size += child.size;
+            }
+            this.size = size;
+        }
+
+        double centerX() {
+            return (minX + maxX) / 2;
+        }
+
+        double centerY() {
+            return (minY + maxY) / 2;
+        }
+
+        private void extend(double x1, double y1, double x2, double y2) {
+            minX = Math.min(minX, x1);
+            minY = Math.min(minY, y1);
+            maxX = Math.max(maxX, x2);
+            maxY = Math.max(maxY, y2);
+        }
+    }
+
+    // depth-first walk, a node inside the query is marked by a negative stack entry and its points are not checked
+    private class NodeIterator implements Iterator<Point> {
+        private final double x1;
+        private final double y1;
+        private final double x2;
+        private final double y2;
+        private int[] stack = new int[4 * NODE_SIZE];
+        private int stackSize;
+        private int index;
+        private int end;
+        private boolean checked;
+
+        NodeIterator(Rectangle query) {
+            x1 = query.getBottomLeft().getX();
+            y1 = query.getBottomLeft().getY();
+            x2 = query.getTopRight().getX();
+            y2 = query.getTopRight().getY();
+            if (sizes.length > 0) {
+                push(0, false);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (true) {
+                while (index < end) {
+                    if (!checked || (xs[index] >= x1 && xs[index] <= x2 && ys[index] >= y1 && ys[index] <= y2)) {
+                        return true;
+                    }
+                    index++;
+                }
+                if (stackSize == 0) {
+                    return false;
+                }
+                pop();
+            }
+        }
+
+        @Override
+        public Point next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return points[index++];
+        }
+
+        private void pop() {
+            int node = stack[--stackSize];
+            boolean inside = node < 0;
+            if (inside) {
+                node = ~node;
+            } else if (minX[node] > x2 || maxX[node] < x1 || minY[node] > y2 || maxY[node] < y1) {
+                return;
+            } else {
+                inside = x1 <= minX[node] && maxX[node] <= x2 && y1 <= minY[node] && maxY[node] <= y2;
+            }
+            if (node < sizes.length - leaves) {
+                for (int child = to[node] - 1; child >= from[node]; child--) {
+                    push(child, inside);
+                }
+            } else {
+                index = from[node];
+                end = to[node];
+                checked = !inside;
+            }
+        }
+
+        private void push(int node, boolean inside) {
+            if (stackSize == stack.length) {
+                stack = Arrays.copyOf(stack, 2 * stack.length);
+            }
+            stack[stackSize++] = inside ? ~node : node;
+        }
+    }
+}
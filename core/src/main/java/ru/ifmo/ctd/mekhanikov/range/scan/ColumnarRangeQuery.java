@@ -0,0 +1,184 @@
+package ru.ifmo.ctd.mekhanikov.range.scan;
+
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.RangeCursor;
+import ru.ifmo.ctd.mekhanikov.range.RangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+// Brute force scan over coordinates stored in plain arrays. Equal points share a slot with a multiplicity,
+// a removed slot is filled with the last one, so add and remove take O(1) and queries scan size() slots
+// with a predicate the JIT compiles without branches.
+public class ColumnarRangeQuery implements RangeQuery {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<Point, Integer> slots = new HashMap<>();
+    private Point[] points = new Point[INITIAL_CAPACITY];
+    private double[] xs = new double[INITIAL_CAPACITY];
+    private double[] ys = new double[INITIAL_CAPACITY];
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private int size;
+
+    // number of distinct points
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(Point p) {
+        return slots.containsKey(p);
+    }
+
+    @Override
+    public void add(Point p) {
+        Integer slot = slots.get(p);
+        if (slot != null) {
+            counts[slot]++;
+            return;
+        }
+        if (size == points.length) {
+            int capacity = 2 * size;
+            points = Arrays.copyOf(points, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        points[size] = p;
+        xs[size] = p.getX();
+        ys[size] = p.getY();
+        counts[size] = 1;
+        slots.put(p, size++);
+    }
+
+    @Override
+    public void remove(Point p) {
+        Integer slot = slots.get(p);
+        if (slot == null) {
+            return;
+        }
+        if (--counts[slot] > 0) {
+            return;
+        }
+        slots.remove(p);
+        int last = --size;
+        if (slot != last) {
+            points[slot] = points[last];
+            xs[slot] = xs[last];
+            ys[slot] = ys[last];
+            counts[slot] = counts[last];
+            slots.put(points[slot], slot);
+        }
+        points[last] = null;
+    }
+
+    @Override
+    public List<Point> get(Rectangle query) {
+        List<Point> result = new ArrayList<>();
+        forEach(query, result::add);
+        return result;
+    }
+
+    @Override
+    public int getCount(Rectangle query) {
+        Point bl = query.getBottomLeft();
+        Point tr = query.getTopRight();
+        return getCount(bl.getX(), bl.getY(), tr.getX(), tr.getY());
+    }
+
+    @Override
+    public int getCount(double x1, double y1, double x2, double y2) {
+        double[] xs = this.xs;
+        double[] ys = this.ys;
+        int[] counts = this.counts;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            // non-short-circuit & keeps the loop body free of branches
+            count += xs[i] >= x1 & xs[i] <= x2 & ys[i] >= y1 & ys[i] <= y2 ? counts[i] : 0;
+        }
+        return count;
+    }
+
+    @Override
+    public void forEach(Rectangle query, Consumer<? super Point> action) {
+        double x1 = query.getBottomLeft().getX();
+        double y1 = query.getBottomLeft().getY();
+        double x2 = query.getTopRight().getX();
+        double y2 = query.getTopRight().getY();
+        for (int i = 0; i < size; i++) {
+            if (xs[i] >= x1 & xs[i] <= x2 & ys[i] >= y1 & ys[i] <= y2) {
+                for (int j = 0; j < counts[i]; j++) {
+                    action.accept(points[i]);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Iterator<Point> iterator(Rectangle query) {
+        return cursor(query);
+    }
+
+    @Override
+    public RangeCursor cursor(Rectangle query) {
+        return new ScanCursor(query);
+    }
+
+    private class ScanCursor extends RangeCursor {
+        private final double x1;
+        private final double y1;
+        private final double x2;
+        private final double y2;
+        private int index = -1;
+        // copies of points[index] left to return
+        private int remaining;
+
+        ScanCursor(Rectangle query) {
+            x1 = query.getBottomLeft().getX();
+            y1 = query.getBottomLeft().getY();
+            x2 = query.getTopRight().getX();
+            y2 = query.getTopRight().getY();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (remaining == 0) {
+                if (++index >= size) {
+                    index = size;
+                    return false;
+                }
+                if (xs[index] >= x1 & xs[index] <= x2 & ys[index] >= y1 & ys[index] <= y2) {
+                    remaining = counts[index];
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Point next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            remaining--;
+            return points[index];
+        }
+
+        @Override
+        public int skip(int count) {
+            int skipped = 0;
+            while (skipped < count && hasNext()) {
+                int step = Math.min(remaining, count - skipped);
+                remaining -= step;
+                skipped += step;
+            }
+            return skipped;
+        }
+    }
+}
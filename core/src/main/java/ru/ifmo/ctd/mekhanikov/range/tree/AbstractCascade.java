@@ -0,0 +1,136 @@
+package ru.ifmo.ctd.mekhanikov.range.tree;
+
+import java.nio.IntBuffer;
+
+// Queries over the layered tree described in Cascade, independent of where its arrays are stored:
+// Cascade keeps them on the heap, BufferRangeTree in int and double buffers.
+abstract class AbstractCascade {
+
+    interface LevelSliceConsumer {
+        void add(int level, int from, int to);
+    }
+
+    abstract int size();
+
+    // first index with x (or y) >= value, or > value if inclusive; items are sorted by x, ys are kept sorted
+    abstract int search(boolean ys, double value, boolean inclusive);
+
+    // number of elements of order[level][lo..i) that belong to the left child
+    abstract int getToLeft(int level, int i);
+
+    int getCount(double x1, double y1, double x2, double y2) {
+        int a = search(false, x1, false);
+        int b = search(false, x2, true);
+        if (a >= b) {
+            return 0;
+        }
+        return count(0, 0, size(), a, b, search(true, y1, false), search(true, y2, true));
+    }
+
+    // passes the items inside the query as O(log n) slices of order[level]
+    void collectLevels(double x1, double y1, double x2, double y2, LevelSliceConsumer result) {
+        int a = search(false, x1, false);
+        int b = search(false, x2, true);
+        if (a < b) {
+            collect(0, 0, size(), a, b, search(true, y1, false), search(true, y2, true), result);
+        }
+    }
+
+    static int getLevels(int n) {
+        int levels = 1;
+        for (int size = n; size > 1; size = (size + 1) / 2) {
+            levels++;
+        }
+        return levels;
+    }
+
+    // fills order and toLeft of every level for items sorted by x, ys[i] being y of item i; Cascade passes its
+    // arrays wrapped, BufferRangeTree the buffers it keeps, so the levels are written only once
+    static void build(double[] ys, IntBuffer[] order, IntBuffer[] toLeft) {
+        if (ys.length > 0) {
+            build(0, 0, ys.length, ys, order, toLeft);
+        }
+    }
+
+    private static void build(int level, int lo, int hi, double[] ys, IntBuffer[] order, IntBuffer[] toLeft) {
+        if (hi - lo == 1) {
+            order[level].put(lo, lo);
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        build(level + 1, lo, mid, ys, order, toLeft);
+        build(level + 1, mid, hi, ys, order, toLeft);
+        IntBuffer children = order[level + 1];
+        IntBuffer merged = order[level];
+        IntBuffer left = toLeft[level];
+        int i = lo;
+        int j = mid;
+        for (int k = lo; k < hi; k++) {
+            left.put(k, i - lo);
+            if (j == hi || (i < mid && ys[children.get(i)] <= ys[children.get(j)])) {
+                merged.put(k, children.get(i++));
+            } else {
+                merged.put(k, children.get(j++));
+            }
+        }
+    }
+
+    private int count(int level, int lo, int hi, int a, int b, int yFrom, int yTo) {
+        if (yFrom >= yTo) {
+            return 0;
+        }
+        if (a <= lo && hi <= b) {
+            return yTo - yFrom;
+        }
+        int mid = (lo + hi) >>> 1;
+        int leftFrom = cascade(level, hi, mid - lo, yFrom);
+        int leftTo = cascade(level, hi, mid - lo, yTo);
+        int count = 0;
+        if (a < mid) {
+            count += count(level + 1, lo, mid, a, b, lo + leftFrom, lo + leftTo);
+        }
+        if (b > mid) {
+            count += count(level + 1, mid, hi, a, b, mid + yFrom - lo - leftFrom, mid + yTo - lo - leftTo);
+        }
+        return count;
+    }
+
+    private void collect(int level, int lo, int hi, int a, int b, int yFrom, int yTo, LevelSliceConsumer result) {
+        if (yFrom >= yTo) {
+            return;
+        }
+        if (a <= lo && hi <= b) {
+            result.add(level, yFrom, yTo);
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        int leftFrom = cascade(level, hi, mid - lo, yFrom);
+        int leftTo = cascade(level, hi, mid - lo, yTo);
+        if (a < mid) {
+            collect(level + 1, lo, mid, a, b, lo + leftFrom, lo + leftTo, result);
+        }
+        if (b > mid) {
+            collect(level + 1, mid, hi, a, b, mid + yFrom - lo - leftFrom, mid + yTo - lo - leftTo, result);
+        }
+    }
+
+    private int cascade(int level, int hi, int leftSize, int i) {
+        return i == hi ? leftSize : getToLeft(level, i);
+    }
+
+    // first index with values[index] >= value, or > value if inclusive; also used by MultiRangeTree
+    static int search(double[] values, double value, boolean inclusive) {
+        int lo = 0;
+        int hi = values.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            double current = values[mid];
+            if (current < value || (inclusive && current == value)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,368 @@
+package ru.ifmo.ctd.mekhanikov.range.tree;
+
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.RangeCursor;
+import ru.ifmo.ctd.mekhanikov.range.RangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// The cascaded arrays of a static range tree kept in buffers instead of the heap, queried in place.
+// Points are referenced by their position in x order, and every position carries an int payload id.
+// allocate copies the arrays to direct buffers, so a large index adds nothing to the old generation.
+// The file written by write holds a header (magic, n, levels) followed by x and y of the points in x order,
+// the sorted y of the root level, the payload ids, then order and toLeft of every level. open maps every array
+// into its own buffer, so nothing is deserialized, the index may be larger than the heap
+// and arrays stay under 2 GB each.
+public class BufferRangeTree implements RangeQuery {
+
+    private static final int MAGIC = 0x52514331;
+    private static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+    private final int n;
+    private final DoubleBuffer xs;
+    private final DoubleBuffer pointYs;
+    private final DoubleBuffer ys;
+    private final IntBuffer ids;
+    private final IntBuffer[] order;
+    private final IntBuffer[] toLeft;
+    private final BufferCascade bufferCascade = new BufferCascade();
+
+    private BufferRangeTree(DoubleBuffer xs, DoubleBuffer pointYs, DoubleBuffer ys, IntBuffer ids,
+                            IntBuffer[] order, IntBuffer[] toLeft) {
+        this.n = xs.capacity();
+        this.xs = xs;
+        this.pointYs = pointYs;
+        this.ys = ys;
+        this.ids = ids;
+        this.order = order;
+        this.toLeft = toLeft;
+    }
+
+    // off-heap copy, the payload id of a point is its index in the list
+    public static BufferRangeTree allocate(List<? extends Point> points) {
+        int n = points.size();
+        double[] listXs = new double[n];
+        double[] listYs = new double[n];
+        for (int i = 0; i < n; i++) {
+            listXs[i] = points.get(i).getX();
+            listYs[i] = points.get(i).getY();
+        }
+        int[] sorted = sortByXY(listXs, listYs);
+        DoubleBuffer xs = allocateDoubles(n);
+        double[] pointYs = new double[n];
+        IntBuffer ids = allocate(sorted);
+        for (int i = 0; i < n; i++) {
+            xs.put(i, listXs[sorted[i]]);
+            pointYs[i] = listYs[sorted[i]];
+        }
+        int levels = AbstractCascade.getLevels(n);
+        IntBuffer[] order = new IntBuffer[levels];
+        IntBuffer[] toLeft = new IntBuffer[levels];
+        for (int level = 0; level < levels; level++) {
+            order[level] = allocateInts(n);
+            toLeft[level] = allocateInts(n);
+        }
+        AbstractCascade.build(pointYs, order, toLeft);
+        DoubleBuffer ys = allocateDoubles(n);
+        for (int i = 0; i < n; i++) {
+            ys.put(i, pointYs[order[0].get(i)]);
+        }
+        return new BufferRangeTree(xs, allocate(pointYs), ys, ids, order, toLeft);
+    }
+
+    // indices sorted by x, then y, with a stable bottom-up merge sort that keeps the keys unboxed
+    private static int[] sortByXY(double[] xs, double[] ys) {
+        int n = xs.length;
+        int[] result = new int[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = i;
+        }
+        int[] merged = new int[n];
+        for (int width = 1; width < n; width *= 2) {
+            for (int lo = 0; lo < n; lo += 2 * width) {
+                int mid = Math.min(n, lo + width);
+                int hi = Math.min(n, lo + 2 * width);
+                int i = lo;
+                int j = mid;
+                for (int k = lo; k < hi; k++) {
+                    if (j == hi || (i < mid && compare(xs, ys, result[i], result[j]) <= 0)) {
+                        merged[k] = result[i++];
+                    } else {
+                        merged[k] = result[j++];
+                    }
+                }
+            }
+            int[] swap = result;
+            result = merged;
+            merged = swap;
+        }
+        return result;
+    }
+
+    private static int compare(double[] xs, double[] ys, int a, int b) {
+        int result = Double.compare(xs[a], xs[b]);
+        return result != 0 ? result : Double.compare(ys[a], ys[b]);
+    }
+
+    private static DoubleBuffer allocateDoubles(int n) {
+        return ByteBuffer.allocateDirect(n * Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+    }
+
+    private static IntBuffer allocateInts(int n) {
+        return ByteBuffer.allocateDirect(n * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    private static DoubleBuffer allocate(double[] values) {
+        DoubleBuffer buffer = allocateDoubles(values.length);
+        buffer.put(values);
+        // Buffer methods return subclasses since Java 9, the cast keeps the bytecode working on Java 8
+        ((Buffer) buffer).rewind();
+        return buffer;
+    }
+
+    private static IntBuffer allocate(int[] values) {
+        IntBuffer buffer = allocateInts(values.length);
+        buffer.put(values);
+        ((Buffer) buffer).rewind();
+        return buffer;
+    }
+
+    // payload ids of a written StaticRangeTree are the positions of the points in x order
+    public static void write(StaticRangeTree tree, Path path) throws IOException {
+        Cascade cascade = tree.getCascade();
+        Point[] points = tree.getPoints();
+        int n = points.length;
+        double[] pointYs = new double[n];
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            pointYs[i] = points[i].getY();
+            ids[i] = i;
+        }
+        int levels = cascade.getOrder().length;
+        IntBuffer[] order = new IntBuffer[levels];
+        IntBuffer[] toLeft = new IntBuffer[levels];
+        for (int level = 0; level < levels; level++) {
+            order[level] = IntBuffer.wrap(cascade.getOrder()[level]);
+            toLeft[level] = IntBuffer.wrap(cascade.getToLeft()[level]);
+        }
+        new BufferRangeTree(DoubleBuffer.wrap(cascade.getXs()), DoubleBuffer.wrap(pointYs),
+                DoubleBuffer.wrap(cascade.getYs()), IntBuffer.wrap(ids), order, toLeft).write(path);
+    }
+
+    public void write(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.putInt(MAGIC).putInt(n).putInt(order.length);
+            long offset = HEADER_SIZE;
+            for (DoubleBuffer values : new DoubleBuffer[]{xs, pointYs, ys}) {
+                DoubleBuffer source = values.duplicate();
+                ((Buffer) source).rewind();
+                channel.map(FileChannel.MapMode.READ_WRITE, offset, n * (long) Double.BYTES)
+                        .asDoubleBuffer().put(source);
+                offset += n * (long) Double.BYTES;
+            }
+            List<IntBuffer> ints = new ArrayList<>();
+            ints.add(ids);
+            ints.addAll(Arrays.asList(order));
+            ints.addAll(Arrays.asList(toLeft));
+            for (IntBuffer values : ints) {
+                IntBuffer source = values.duplicate();
+                ((Buffer) source).rewind();
+                channel.map(FileChannel.MapMode.READ_WRITE, offset, n * (long) Integer.BYTES)
+                        .asIntBuffer().put(source);
+                offset += n * (long) Integer.BYTES;
+            }
+        }
+    }
+
+    // the mapping stays valid after the channel is closed
+    public static BufferRangeTree open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException(path + " is not a range tree index");
+            }
+            int n = header.getInt();
+            int levels = header.getInt();
+            long offset = HEADER_SIZE;
+            DoubleBuffer[] doubles = new DoubleBuffer[3];
+            for (int i = 0; i < doubles.length; i++) {
+                doubles[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, n * (long) Double.BYTES)
+                        .asDoubleBuffer();
+                offset += n * (long) Double.BYTES;
+            }
+            IntBuffer[] ints = new IntBuffer[1 + 2 * levels];
+            for (int i = 0; i < ints.length; i++) {
+                ints[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, n * (long) Integer.BYTES)
+                        .asIntBuffer();
+                offset += n * (long) Integer.BYTES;
+            }
+            if (offset != channel.size()) {
+                throw new IOException(path + " is truncated or corrupted");
+            }
+            return new BufferRangeTree(doubles[0], doubles[1], doubles[2], ints[0],
+                    Arrays.copyOfRange(ints, 1, 1 + levels), Arrays.copyOfRange(ints, 1 + levels, ints.length));
+        }
+    }
+
+    public int size() {
+        return n;
+    }
+
+    @Override
+    public void add(Point p) {
+        throw new UnsupportedOperationException("BufferRangeTree is immutable");
+    }
+
+    @Override
+    public void remove(Point p) {
+        throw new UnsupportedOperationException("BufferRangeTree is immutable");
+    }
+
+    @Override
+    public List<Point> get(Rectangle query) {
+        List<Point> result = new ArrayList<>();
+        iterator(query).forEachRemaining(result::add);
+        return result;
+    }
+
+    @Override
+    public int getCount(Rectangle query) {
+        Point bl = query.getBottomLeft();
+        Point tr = query.getTopRight();
+        return getCount(bl.getX(), bl.getY(), tr.getX(), tr.getY());
+    }
+
+    @Override
+    public int getCount(double x1, double y1, double x2, double y2) {
+        return bufferCascade.getCount(x1, y1, x2, y2);
+    }
+
+    // payload ids of the points inside the query, no points are created
+    public int[] getIds(Rectangle query) {
+        List<int[]> slices = collect(query).slices;
+        int size = 0;
+        for (int[] slice : slices) {
+            size += slice[2] - slice[1];
+        }
+        int[] result = new int[size];
+        size = 0;
+        for (int[] slice : slices) {
+            IntBuffer positions = order[slice[0]];
+            for (int i = slice[1]; i < slice[2]; i++) {
+                result[size++] = ids.get(positions.get(i));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Iterator<Point> iterator(Rectangle query) {
+        return cursor(query);
+    }
+
+    @Override
+    public RangeCursor cursor(Rectangle query) {
+        return collect(query);
+    }
+
+    private BufferCursor collect(Rectangle query) {
+        BufferCursor result = new BufferCursor();
+        Point bl = query.getBottomLeft();
+        Point tr = query.getTopRight();
+        bufferCascade.collectLevels(bl.getX(), bl.getY(), tr.getX(), tr.getY(), result);
+        return result;
+    }
+
+    private class BufferCascade extends AbstractCascade {
+        @Override
+        int size() {
+            return n;
+        }
+
+        // the loop of AbstractCascade.search over the buffers, a DoubleBuffer view of the heap arrays would slow
+        // the heap searches down
+        @Override
+        int search(boolean y, double value, boolean inclusive) {
+            DoubleBuffer values = y ? ys : xs;
+            int lo = 0;
+            int hi = n;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                double current = values.get(mid);
+                if (current < value || (inclusive && current == value)) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        @Override
+        int getToLeft(int level, int i) {
+            return toLeft[level].get(i);
+        }
+    }
+
+    // iterates over the ids in order[level][from..to) for every added slice, points are created on the way
+    private class BufferCursor extends RangeCursor implements AbstractCascade.LevelSliceConsumer {
+        private final List<int[]> slices = new ArrayList<>();
+        private int slice;
+        private IntBuffer levelOrder;
+        private int index;
+        private int end;
+
+        @Override
+        public void add(int level, int from, int to) {
+            slices.add(new int[]{level, from, to});
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (index == end && slice < slices.size()) {
+                int[] bounds = slices.get(slice++);
+                levelOrder = order[bounds[0]];
+                index = bounds[1];
+                end = bounds[2];
+            }
+            return index < end;
+        }
+
+        @Override
+        public int skip(int count) {
+            int skipped = 0;
+            while (skipped < count && hasNext()) {
+                int step = Math.min(count - skipped, end - index);
+                index += step;
+                skipped += step;
+            }
+            return skipped;
+        }
+
+        @Override
+        public Point next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int id = levelOrder.get(index++);
+            return new Point(xs.get(id), pointYs.get(id));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package ru.ifmo.ctd.mekhanikov.range.tree;
+
+import java.nio.IntBuffer;
+
+// Layered range tree over items 0..n-1 given by their coordinates, items being sorted by the first one.
+// Node [lo, hi) on some level covers items lo..hi-1, order[level][lo..hi) lists the same items sorted by
+// the second coordinate, and toLeft[level][i] tells how many of order[level][lo..i) went to the left child,
+// so the bounds found by binary search at the root are cascaded down in O(1) per node.
+class Cascade extends AbstractCascade {
+
+    interface SliceConsumer {
+        void add(int[] ids, int from, int to);
+    }
+
+    private final double[] xs;
+    private final double[] ys;
+    private final int[][] order;
+    private final int[][] toLeft;
+
+    // xs must be sorted
+    Cascade(double[] xs, double[] ys) {
+        this.xs = xs;
+        int n = xs.length;
+        int levels = getLevels(n);
+        order = new int[levels][n];
+        toLeft = new int[levels][n];
+        IntBuffer[] orderBuffers = new IntBuffer[levels];
+        IntBuffer[] toLeftBuffers = new IntBuffer[levels];
+        for (int level = 0; level < levels; level++) {
+            orderBuffers[level] = IntBuffer.wrap(order[level]);
+            toLeftBuffers[level] = IntBuffer.wrap(toLeft[level]);
+        }
+        build(ys, orderBuffers, toLeftBuffers);
+        this.ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            this.ys[i] = ys[order[0][i]];
+        }
+    }
+
+    @Override
+    int size() {
+        return xs.length;
+    }
+
+    @Override
+    int search(boolean y, double value, boolean inclusive) {
+        return search(y ? ys : xs, value, inclusive);
+    }
+
+    @Override
+    int getToLeft(int level, int i) {
+        return toLeft[level][i];
+    }
+
+    // the arrays below are shared, not copied, and must not be modified
+
+    double[] getXs() {
+        return xs;
+    }
+
+    double[] getYs() {
+        return ys;
+    }
+
+    int[][] getOrder() {
+        return order;
+    }
+
+    int[][] getToLeft() {
+        return toLeft;
+    }
+
+    // passes the ids of the items inside the query as O(log n) slices
+    void collect(double x1, double y1, double x2, double y2, SliceConsumer result) {
+        collectLevels(x1, y1, x2, y2, (level, from, to) -> result.add(order[level], from, to));
+    }
+}
@@ -0,0 +1,123 @@
+package ru.ifmo.ctd.mekhanikov.range.tree;
+
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.RangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.ReadOnlyRangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+// Range query for many readers and few writers. Readers never block: every query runs against the immutable
+// version published last. Writers are serialized, each of them publishes a new version that shares the bulk-built
+// tree with the previous one, and the tree is rebuilt once the points changed since it was built become too many.
+public class ConcurrentRangeTree implements RangeQuery {
+
+    private static final int MIN_DELTA = 64;
+
+    private final Lock writeLock = new ReentrantLock();
+    private volatile Version version;
+
+    public ConcurrentRangeTree() {
+        this(Collections.emptyList());
+    }
+
+    public ConcurrentRangeTree(Collection<? extends Point> points) {
+        version = Version.of(new ArrayList<>(points));
+    }
+
+    public int size() {
+        return version.size();
+    }
+
+    // read-only view of the current contents, later writes are not visible through it
+    public ReadOnlyRangeQuery snapshot() {
+        return version;
+    }
+
+    @Override
+    public void add(Point p) {
+        writeLock.lock();
+        try {
+            publish(version.with(p));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(Point p) {
+        writeLock.lock();
+        try {
+            publish(version.without(p));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void addAll(Collection<? extends Point> points) {
+        writeLock.lock();
+        try {
+            publish(version.withAll(points));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Collection<? extends Point> points) {
+        writeLock.lock();
+        try {
+            if (points.size() > getDeltaLimit(version.size())) {
+                version = version.compactWithout(points);
+            } else {
+                publish(version.withoutAll(points));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Point> get(Rectangle query) {
+        return version.get(query);
+    }
+
+    @Override
+    public int getCount(Rectangle query) {
+        return version.getCount(query);
+    }
+
+    @Override
+    public int getCount(double x1, double y1, double x2, double y2) {
+        return version.getCount(x1, y1, x2, y2);
+    }
+
+    @Override
+    public Iterator<Point> iterator(Rectangle query) {
+        return version.iterator(query);
+    }
+
+    @Override
+    public Stream<Point> stream(Rectangle query) {
+        return version.stream(query);
+    }
+
+    private void publish(Version next) {
+        if (next.getDeltaSize() > getDeltaLimit(next.size())) {
+            next = next.compact();
+        }
+        version = next;
+    }
+
+    private static int getDeltaLimit(int size) {
+        return Math.max(MIN_DELTA, (int) Math.sqrt(size));
+    }
+}
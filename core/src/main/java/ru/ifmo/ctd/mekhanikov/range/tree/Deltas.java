@@ -0,0 +1,47 @@
+package ru.ifmo.ctd.mekhanikov.range.tree;
+
+import ru.ifmo.ctd.mekhanikov.range.Point;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Helpers for structures that keep recent changes next to bulk-built indexes: short lists of points
+// scanned by every query, and multisets of removed points hiding as many equal points from the results.
+final class Deltas {
+
+    private Deltas() {
+    }
+
+    static int count(List<? extends Point> points, double x1, double y1, double x2, double y2) {
+        int count = 0;
+        for (Point p : points) {
+            if (p.getX() >= x1 && p.getX() <= x2 && p.getY() >= y1 && p.getY() <= y2) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    static <T> Map<T, Integer> multiset(Iterable<? extends T> items) {
+        Map<T, Integer> result = new HashMap<>();
+        for (T item : items) {
+            result.merge(item, 1, Integer::sum);
+        }
+        return result;
+    }
+
+    // takes one copy of the item out of the multiset, returns false if there is none
+    static <T> boolean hide(Map<T, Integer> hidden, T item) {
+        Integer count = hidden.get(item);
+        if (count == null) {
+            return false;
+        }
+        if (count == 1) {
+            hidden.remove(item);
+        } else {
+            hidden.put(item, count - 1);
+        }
+        return true;
+    }
+}
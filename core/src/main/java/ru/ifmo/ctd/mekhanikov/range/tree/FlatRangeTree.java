@@ -0,0 +1,192 @@
+package ru.ifmo.ctd.mekhanikov.range.tree;
+
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.RangeCursor;
+import ru.ifmo.ctd.mekhanikov.range.RangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+// Range tree without node objects: x keys are searched in an Eytzinger-ordered array, and the x dimension is
+// an implicit segment tree where node i has children 2i and 2i + 1 and leaves n..2n-1 are the points in x order.
+// Every node stores the y coordinates and ids of its points sorted by y in one flat array,
+// nodes being laid out one after another by index.
+public class FlatRangeTree implements RangeQuery {
+
+    private static final Comparator<Point> X_ORDER =
+            Comparator.comparingDouble(Point::getX).thenComparingDouble(Point::getY);
+
+    private final Point[] points;
+    private final double[] keys;
+    private final int[] ranks;
+    private final int[] starts;
+    private final double[] ys;
+    private final int[] ids;
+
+    private FlatRangeTree(Point[] points) {
+        this.points = points;
+        int n = points.length;
+        keys = new double[n + 1];
+        ranks = new int[n + 1];
+        fillKeys(1, 0);
+        int[] sizes = new int[2 * n];
+        for (int node = 2 * n - 1; node >= 1; node--) {
+            sizes[node] = node >= n ? 1 : sizes[2 * node] + sizes[2 * node + 1];
+        }
+        starts = new int[2 * n + 1];
+        int total = 0;
+        for (int node = 1; node < 2 * n; node++) {
+            starts[node] = total;
+            total += sizes[node];
+        }
+        starts[2 * n] = total;
+        ys = new double[total];
+        ids = new int[total];
+        for (int i = 0; i < n; i++) {
+            ys[starts[n + i]] = points[i].getY();
+            ids[starts[n + i]] = i;
+        }
+        for (int node = n - 1; node >= 1; node--) {
+            merge(node);
+        }
+    }
+
+    public static FlatRangeTree build(Collection<? extends Point> points) {
+        Point[] sorted = points.toArray(new Point[points.size()]);
+        Arrays.sort(sorted, X_ORDER);
+        return new FlatRangeTree(sorted);
+    }
+
+    public int size() {
+        return points.length;
+    }
+
+    @Override
+    public void add(Point p) {
+        throw new UnsupportedOperationException("FlatRangeTree is immutable");
+    }
+
+    @Override
+    public void remove(Point p) {
+        throw new UnsupportedOperationException("FlatRangeTree is immutable");
+    }
+
+    @Override
+    public List<Point> get(Rectangle query) {
+        List<Point> result = new ArrayList<>();
+        iterator(query).forEachRemaining(result::add);
+        return result;
+    }
+
+    @Override
+    public Iterator<Point> iterator(Rectangle query) {
+        return cursor(query);
+    }
+
+    @Override
+    public RangeCursor cursor(Rectangle query) {
+        SliceIterator result = new SliceIterator(points);
+        Point bl = query.getBottomLeft();
+        Point tr = query.getTopRight();
+        sumNodes(bl.getX(), tr.getX(), node -> {
+            collect(node, bl.getY(), tr.getY(), result);
+            return 0;
+        });
+        return result;
+    }
+
+    @Override
+    public int getCount(Rectangle query) {
+        Point bl = query.getBottomLeft();
+        Point tr = query.getTopRight();
+        return getCount(bl.getX(), bl.getY(), tr.getX(), tr.getY());
+    }
+
+    @Override
+    public int getCount(double x1, double y1, double x2, double y2) {
+        return sumNodes(x1, x2, node -> count(node, y1, y2));
+    }
+
+    // sum of the values of the O(log n) nodes whose points make up the x-range [x1, x2]
+    private int sumNodes(double x1, double x2, IntUnaryOperator value) {
+        int n = points.length;
+        int left = n + lowerBound(x1, false);
+        int right = n + lowerBound(x2, true);
+        int sum = 0;
+        while (left < right) {
+            if ((left & 1) == 1) {
+                sum += value.applyAsInt(left++);
+            }
+            if ((right & 1) == 1) {
+                sum += value.applyAsInt(--right);
+            }
+            left >>= 1;
+            right >>= 1;
+        }
+        return sum;
+    }
+
+    private int count(int node, double y1, double y2) {
+        int from = starts[node];
+        int to = starts[node + 1];
+        return search(from, to, y2, true) - search(from, to, y1, false);
+    }
+
+    private void collect(int node, double y1, double y2, SliceIterator result) {
+        int from = starts[node];
+        int to = starts[node + 1];
+        result.add(ids, search(from, to, y1, false), search(from, to, y2, true));
+    }
+
+    // first index in ys[from..to) with ys[index] >= y (or > y if inclusive)
+    private int search(int from, int to, double y, boolean inclusive) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (ys[mid] < y || (inclusive && ys[mid] == y)) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    // position in x order of the first point with x >= value (or > value if inclusive)
+    private int lowerBound(double value, boolean inclusive) {
+        int n = points.length;
+        int k = 1;
+        while (k <= n) {
+            k = 2 * k + (keys[k] < value || (inclusive && keys[k] == value) ? 1 : 0);
+        }
+        k >>= Integer.numberOfTrailingZeros(~k) + 1;
+        return k == 0 ? n : ranks[k];
+    }
+
+    private int fillKeys(int k, int rank) {
+        if (k < keys.length) {
+            rank = fillKeys(2 * k, rank);
+            keys[k] = points[rank].getX();
+            ranks[k] = rank++;
+            rank = fillKeys(2 * k + 1, rank);
+        }
+        return rank;
+    }
+
+    private void merge(int node) {
+        int i = starts[2 * node];
+        int iEnd = starts[2 * node + 1];
+        int j = iEnd;
+        int jEnd = starts[2 * node + 2];
+        for (int k = starts[node]; k < starts[node + 1]; k++) {
+            int from = j == jEnd || (i < iEnd && ys[i] <= ys[j]) ? i++ : j++;
+            ys[k] = ys[from];
+            ids[k] = ids[from];
+        }
+    }
+}
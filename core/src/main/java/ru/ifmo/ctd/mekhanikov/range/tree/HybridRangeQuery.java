@@ -0,0 +1,155 @@
+package ru.ifmo.ctd.mekhanikov.range.tree;
+
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.RangeCursor;
+import ru.ifmo.ctd.mekhanikov.range.RangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+import ru.ifmo.ctd.mekhanikov.range.scan.ColumnarRangeQuery;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Range tree backed by a columnar copy of the points. A small set is kept in the columnar bucket only, the tree
+// is built once the set grows to TREE_SIZE points and dropped when it shrinks below half of that. Reporting
+// queries are answered by the scan as well when the tree counts show they cover a large share of the points.
+// The copy stays next to the tree for those queries: it takes about 90 bytes per point against several kilobytes
+// per point of the tree, so it adds less than 3% to the memory. Both thresholds come from QueryBenchmark runs
+// of COLUMNAR against RANGE_TREE.
+public class HybridRangeQuery implements RangeQuery {
+
+    private static final int TREE_SIZE = 512;
+    private static final double SCAN_SHARE = 0.15;
+    private static final Rectangle EVERYTHING = new Rectangle(
+            new Point(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY),
+            new Point(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY));
+
+    private final ColumnarRangeQuery scan = new ColumnarRangeQuery();
+    // null while the set is small
+    private RangeTree tree;
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void add(Point p) {
+        scan.add(p);
+        size++;
+        if (tree != null) {
+            tree.add(p);
+        } else if (size >= TREE_SIZE) {
+            buildTree();
+        }
+    }
+
+    @Override
+    public void remove(Point p) {
+        if (!scan.contains(p)) {
+            return;
+        }
+        scan.remove(p);
+        size--;
+        if (tree != null) {
+            if (size < TREE_SIZE / 2) {
+                tree = null;
+            } else {
+                tree.remove(p);
+            }
+        }
+    }
+
+    @Override
+    public void addAll(Collection<? extends Point> points) {
+        scan.addAll(points);
+        size += points.size();
+        if (tree != null) {
+            tree.addAll(points);
+        } else if (size >= TREE_SIZE) {
+            buildTree();
+        }
+    }
+
+    @Override
+    public void removeAll(Collection<? extends Point> points) {
+        List<Point> present = new ArrayList<>();
+        for (Point p : points) {
+            if (scan.contains(p)) {
+                scan.remove(p);
+                present.add(p);
+            }
+        }
+        size -= present.size();
+        if (tree != null) {
+            if (size < TREE_SIZE / 2) {
+                tree = null;
+            } else {
+                tree.removeAll(present);
+            }
+        }
+    }
+
+    @Override
+    public List<Point> get(Rectangle query) {
+        List<Node> subtrees = getTreeSubtrees(query);
+        if (subtrees == null) {
+            return scan.get(query);
+        }
+        List<Point> result = new ArrayList<>();
+        tree.cursor(subtrees).forEachRemaining(result::add);
+        return result;
+    }
+
+    @Override
+    public int getCount(Rectangle query) {
+        return tree == null ? scan.getCount(query) : tree.getCount(query);
+    }
+
+    @Override
+    public int getCount(double x1, double y1, double x2, double y2) {
+        return tree == null ? scan.getCount(x1, y1, x2, y2) : tree.getCount(x1, y1, x2, y2);
+    }
+
+    @Override
+    public Iterator<Point> iterator(Rectangle query) {
+        return cursor(query);
+    }
+
+    @Override
+    public RangeCursor cursor(Rectangle query) {
+        List<Node> subtrees = getTreeSubtrees(query);
+        return subtrees == null ? scan.cursor(query) : tree.cursor(subtrees);
+    }
+
+    @Override
+    public void forEach(Rectangle query, Consumer<? super Point> action) {
+        List<Node> subtrees = getTreeSubtrees(query);
+        if (subtrees == null) {
+            scan.forEach(query, action);
+        } else {
+            tree.cursor(subtrees).forEachRemaining(action);
+        }
+    }
+
+    // the subtrees the tree would report, or null when the scan is cheaper: the tree pays per reported point,
+    // the scan per stored one, and the counts of the same subtrees tell how many points the query takes
+    private List<Node> getTreeSubtrees(Rectangle query) {
+        if (tree == null) {
+            return null;
+        }
+        List<Node> subtrees = tree.getSubtrees(query);
+        int count = 0;
+        for (Node subtree : subtrees) {
+            count += subtree.count;
+        }
+        return count >= size * SCAN_SHARE ? null : subtrees;
+    }
+
+    private void buildTree() {
+        tree = new RangeTree();
+        tree.addAll(scan.get(EVERYTHING));
+    }
+}
@@ -0,0 +1,108 @@
+package ru.ifmo.ctd.mekhanikov.range.tree;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+// Items of the Bentley-Saxe logarithmic method: a buffer of up to BUFFER_SIZE items and at most one bulk-built
+// index of up to BUFFER_SIZE * 2^i items on level i. A full buffer is merged with the lowest occupied levels
+// into one index, so every item is rebuilt O(log n) times.
+final class Levels<T, I> {
+
+    private static final int BUFFER_SIZE = 64;
+
+    private final Function<List<T>, ? extends I> builder;
+    private List<T> buffer = new ArrayList<>();
+    private List<List<T>> items = new ArrayList<>();
+    private List<I> indexes = new ArrayList<>();
+    private int size;
+
+    Levels(Function<List<T>, ? extends I> builder) {
+        this.builder = builder;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // items that are not indexed yet and have to be scanned
+    List<T> getBuffer() {
+        return buffer;
+    }
+
+    // indexes of the occupied levels
+    List<I> getIndexes() {
+        List<I> result = new ArrayList<>();
+        for (I index : indexes) {
+            if (index != null) {
+                result.add(index);
+            }
+        }
+        return result;
+    }
+
+    List<T> getAll() {
+        List<T> result = new ArrayList<>(buffer);
+        for (List<T> level : items) {
+            if (level != null) {
+                result.addAll(level);
+            }
+        }
+        return result;
+    }
+
+    void add(T item) {
+        buffer.add(item);
+        size++;
+        if (buffer.size() == BUFFER_SIZE) {
+            flush();
+        }
+    }
+
+    void addAll(Collection<? extends T> items) {
+        buffer.addAll(items);
+        size += items.size();
+        if (buffer.size() >= BUFFER_SIZE) {
+            flush();
+        }
+    }
+
+    // returns false if the item is not in the buffer
+    boolean removeFromBuffer(T item) {
+        if (buffer.remove(item)) {
+            size--;
+            return true;
+        }
+        return false;
+    }
+
+    void clear() {
+        buffer = new ArrayList<>();
+        items = new ArrayList<>();
+        indexes = new ArrayList<>();
+        size = 0;
+    }
+
+    // merges the buffer with the lowest occupied levels until it fits into an empty one
+    private void flush() {
+        List<T> carry = buffer;
+        buffer = new ArrayList<>();
+        for (int level = 0; ; level++) {
+            if (level == items.size()) {
+                items.add(null);
+                indexes.add(null);
+            }
+            List<T> levelItems = items.get(level);
+            if (levelItems != null) {
+                carry.addAll(levelItems);
+                items.set(level, null);
+                indexes.set(level, null);
+            } else if (carry.size() <= (long) BUFFER_SIZE << level) {
+                items.set(level, carry);
+                indexes.set(level, builder.apply(carry));
+                return;
+            }
+        }
+    }
+}
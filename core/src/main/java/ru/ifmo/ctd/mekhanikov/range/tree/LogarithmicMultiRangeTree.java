@@ -0,0 +1,160 @@
+package ru.ifmo.ctd.mekhanikov.range.tree;
+
+import ru.ifmo.ctd.mekhanikov.range.Box;
+import ru.ifmo.ctd.mekhanikov.range.CoordinateAccessor;
+import ru.ifmo.ctd.mekhanikov.range.MultiPoint;
+import ru.ifmo.ctd.mekhanikov.range.MultiRangeQuery;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Dynamic d-dimensional range query made of MultiRangeTree blocks, see LogarithmicRangeTree.
+public class LogarithmicMultiRangeTree<T> implements MultiRangeQuery<T> {
+
+    private final int dimension;
+    private final CoordinateAccessor<? super T> accessor;
+    private final Levels<T, MultiRangeTree<T>> inserted;
+    private final Levels<T, MultiRangeTree<T>> deleted;
+
+    public LogarithmicMultiRangeTree(int dimension, CoordinateAccessor<? super T> accessor) {
+        if (dimension < 1) {
+            throw new IllegalArgumentException("Dimension must be positive");
+        }
+        this.dimension = dimension;
+        this.accessor = accessor;
+        inserted = new Levels<>(items -> MultiRangeTree.build(items, dimension, accessor));
+        deleted = new Levels<>(items -> MultiRangeTree.build(items, dimension, accessor));
+    }
+
+    public static LogarithmicMultiRangeTree<MultiPoint> create(int dimension) {
+        return new LogarithmicMultiRangeTree<>(dimension, MultiPoint::get);
+    }
+
+    public int size() {
+        return inserted.size() - deleted.size();
+    }
+
+    @Override
+    public int getDimension() {
+        return dimension;
+    }
+
+    @Override
+    public void add(T item) {
+        inserted.add(item);
+    }
+
+    @Override
+    public void addAll(Collection<? extends T> items) {
+        inserted.addAll(items);
+    }
+
+    // removes one occurrence of an equal item, the item has to keep its coordinates while it is stored
+    @Override
+    public void remove(T item) {
+        if (inserted.removeFromBuffer(item)) {
+            return;
+        }
+        Box point = getBox(item);
+        int stored = 0;
+        for (T other : get(inserted, point)) {
+            if (other.equals(item)) {
+                stored++;
+            }
+        }
+        for (T other : get(deleted, point)) {
+            if (other.equals(item)) {
+                stored--;
+            }
+        }
+        if (stored == 0) {
+            return;
+        }
+        deleted.add(item);
+        if (deleted.size() * 2 >= inserted.size()) {
+            compact();
+        }
+    }
+
+    @Override
+    public List<T> get(Box query) {
+        checkDimension(query);
+        List<T> result = get(inserted, query);
+        if (deleted.size() == 0) {
+            return result;
+        }
+        Map<T, Integer> hidden = Deltas.multiset(get(deleted, query));
+        if (hidden.isEmpty()) {
+            return result;
+        }
+        List<T> live = new ArrayList<>();
+        for (T item : result) {
+            if (!Deltas.hide(hidden, item)) {
+                live.add(item);
+            }
+        }
+        return live;
+    }
+
+    @Override
+    public int getCount(Box query) {
+        checkDimension(query);
+        return getCount(inserted, query) - getCount(deleted, query);
+    }
+
+    private List<T> get(Levels<T, MultiRangeTree<T>> levels, Box query) {
+        List<T> result = new ArrayList<>();
+        for (T item : levels.getBuffer()) {
+            if (query.contains(item, accessor)) {
+                result.add(item);
+            }
+        }
+        for (MultiRangeTree<T> index : levels.getIndexes()) {
+            result.addAll(index.get(query));
+        }
+        return result;
+    }
+
+    private int getCount(Levels<T, MultiRangeTree<T>> levels, Box query) {
+        int count = 0;
+        for (T item : levels.getBuffer()) {
+            if (query.contains(item, accessor)) {
+                count++;
+            }
+        }
+        for (MultiRangeTree<T> index : levels.getIndexes()) {
+            count += index.getCount(query);
+        }
+        return count;
+    }
+
+    private void compact() {
+        Map<T, Integer> hidden = Deltas.multiset(deleted.getAll());
+        List<T> live = new ArrayList<>();
+        for (T item : inserted.getAll()) {
+            if (!Deltas.hide(hidden, item)) {
+                live.add(item);
+            }
+        }
+        inserted.clear();
+        deleted.clear();
+        inserted.addAll(live);
+    }
+
+    private Box getBox(T item) {
+        double[] coordinates = new double[dimension];
+        for (int i = 0; i < dimension; i++) {
+            coordinates[i] = accessor.get(item, i);
+        }
+        MultiPoint p = new MultiPoint(coordinates);
+        return new Box(p, p);
+    }
+
+    private void checkDimension(Box query) {
+        if (query.getDimension() != dimension) {
+            throw new IllegalArgumentException("Query is not " + dimension + "-dimensional");
+        }
+    }
+}
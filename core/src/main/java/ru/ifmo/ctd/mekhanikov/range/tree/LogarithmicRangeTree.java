@@ -0,0 +1,125 @@
+package ru.ifmo.ctd.mekhanikov.range.tree;
+
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.RangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Dynamic range query made of static ones (Bentley-Saxe logarithmic method). Points go to a small buffer,
+// a full buffer is merged with the blocks of the lowest levels into one bulk-built block, so every point is
+// rebuilt O(log n) times. Removed points become tombstones kept in the same kind of structure and subtracted
+// from the answers, everything is rebuilt once tombstones make up half of the stored points.
+public class LogarithmicRangeTree implements RangeQuery {
+
+    private final Levels<Point, RangeQuery> inserted;
+    private final Levels<Point, RangeQuery> deleted;
+
+    public LogarithmicRangeTree() {
+        this(StaticRangeTree::build);
+    }
+
+    public LogarithmicRangeTree(Function<List<Point>, ? extends RangeQuery> builder) {
+        inserted = new Levels<>(builder);
+        deleted = new Levels<>(builder);
+    }
+
+    public int size() {
+        return inserted.size() - deleted.size();
+    }
+
+    @Override
+    public void add(Point p) {
+        inserted.add(p);
+    }
+
+    @Override
+    public void addAll(Collection<? extends Point> points) {
+        inserted.addAll(points);
+    }
+
+    @Override
+    public void remove(Point p) {
+        if (inserted.removeFromBuffer(p)) {
+            return;
+        }
+        if (getCount(p.getX(), p.getY(), p.getX(), p.getY()) == 0) {
+            return;
+        }
+        deleted.add(p);
+        if (deleted.size() * 2 >= inserted.size()) {
+            compact();
+        }
+    }
+
+    @Override
+    public List<Point> get(Rectangle query) {
+        List<Point> result = new ArrayList<>();
+        iterator(query).forEachRemaining(result::add);
+        return result;
+    }
+
+    @Override
+    public int getCount(Rectangle query) {
+        Point bl = query.getBottomLeft();
+        Point tr = query.getTopRight();
+        return getCount(bl.getX(), bl.getY(), tr.getX(), tr.getY());
+    }
+
+    @Override
+    public int getCount(double x1, double y1, double x2, double y2) {
+        return getCount(inserted, x1, y1, x2, y2) - getCount(deleted, x1, y1, x2, y2);
+    }
+
+    @Override
+    public Iterator<Point> iterator(Rectangle query) {
+        return stream(query).iterator();
+    }
+
+    @Override
+    public Stream<Point> stream(Rectangle query) {
+        if (deleted.size() == 0) {
+            return stream(inserted, query);
+        }
+        Map<Point, Integer> hidden = Deltas.multiset(stream(deleted, query)::iterator);
+        if (hidden.isEmpty()) {
+            return stream(inserted, query);
+        }
+        return stream(inserted, query).filter(p -> !Deltas.hide(hidden, p));
+    }
+
+    private void compact() {
+        Map<Point, Integer> hidden = Deltas.multiset(deleted.getAll());
+        List<Point> live = new ArrayList<>();
+        for (Point p : inserted.getAll()) {
+            if (!Deltas.hide(hidden, p)) {
+                live.add(p);
+            }
+        }
+        inserted.clear();
+        deleted.clear();
+        inserted.addAll(live);
+    }
+
+    private static int getCount(Levels<Point, RangeQuery> levels, double x1, double y1, double x2, double y2) {
+        int count = Deltas.count(levels.getBuffer(), x1, y1, x2, y2);
+        for (RangeQuery index : levels.getIndexes()) {
+            count += index.getCount(x1, y1, x2, y2);
+        }
+        return count;
+    }
+
+    private static Stream<Point> stream(Levels<Point, RangeQuery> levels, Rectangle query) {
+        Stream<Point> result = levels.getBuffer().stream().filter(query::contains);
+        for (RangeQuery index : levels.getIndexes()) {
+            result = Stream.concat(result, index.stream(query));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,186 @@
+package ru.ifmo.ctd.mekhanikov.range.tree;
+
+import ru.ifmo.ctd.mekhanikov.range.Box;
+import ru.ifmo.ctd.mekhanikov.range.CoordinateAccessor;
+import ru.ifmo.ctd.mekhanikov.range.MultiPoint;
+import ru.ifmo.ctd.mekhanikov.range.ReadOnlyMultiRangeQuery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+// Static range tree for any number of dimensions. Every level is a balanced tree over one coordinate
+// whose nodes keep a tree for the remaining coordinates, the last two coordinates share one layered
+// tree with fractional cascading, so queries take O(log^(d-1) n + k) and memory is O(n log^(d-1) n).
+// The tree is static like StaticRangeTree: rebalancing a d-level tree would rebuild whole secondary trees,
+// LogarithmicMultiRangeTree makes it dynamic the same way LogarithmicRangeTree does for the 2-D trees.
+public class MultiRangeTree<T> implements ReadOnlyMultiRangeQuery<T> {
+
+    private final T[] items;
+    private final int dim;
+    private final int dimension;
+    private final CoordinateAccessor<? super T> accessor;
+    private final double[] keys;
+    private Node<T> root;
+    private Cascade cascade;
+
+    private MultiRangeTree(T[] items, int dim, int dimension, CoordinateAccessor<? super T> accessor) {
+        this.items = items;
+        this.dim = dim;
+        this.dimension = dimension;
+        this.accessor = accessor;
+        keys = new double[items.length];
+        for (int i = 0; i < items.length; i++) {
+            keys[i] = accessor.get(items[i], dim);
+        }
+        if (dimension - dim == 2) {
+            double[] nextKeys = new double[items.length];
+            for (int i = 0; i < items.length; i++) {
+                nextKeys[i] = accessor.get(items[i], dim + 1);
+            }
+            cascade = new Cascade(keys, nextKeys);
+        } else if (dimension - dim > 2 && items.length > 0) {
+            root = build(0, items.length);
+        }
+    }
+
+    public static <T> MultiRangeTree<T> build(Collection<? extends T> items, int dimension,
+                                              CoordinateAccessor<? super T> accessor) {
+        if (dimension < 1) {
+            throw new IllegalArgumentException("Dimension must be positive");
+        }
+        @SuppressWarnings("unchecked")
+        T[] sorted = (T[]) items.toArray();
+        Arrays.sort(sorted, getOrder(0, accessor));
+        return new MultiRangeTree<>(sorted, 0, dimension, accessor);
+    }
+
+    public static MultiRangeTree<MultiPoint> build(Collection<MultiPoint> points, int dimension) {
+        for (MultiPoint p : points) {
+            if (p.getDimension() != dimension) {
+                throw new IllegalArgumentException("Point " + p + " is not " + dimension + "-dimensional");
+            }
+        }
+        return build(points, dimension, MultiPoint::get);
+    }
+
+    public int size() {
+        return items.length;
+    }
+
+    @Override
+    public int getDimension() {
+        return dimension;
+    }
+
+    @Override
+    public int getCount(Box query) {
+        checkDimension(query);
+        int a = AbstractCascade.search(keys, query.getMin().get(dim), false);
+        int b = AbstractCascade.search(keys, query.getMax().get(dim), true);
+        if (a >= b) {
+            return 0;
+        }
+        if (cascade != null) {
+            return cascade.getCount(query.getMin().get(dim), query.getMin().get(dim + 1),
+                    query.getMax().get(dim), query.getMax().get(dim + 1));
+        }
+        if (root == null) {
+            return b - a;
+        }
+        return count(root, a, b, query);
+    }
+
+    @Override
+    public List<T> get(Box query) {
+        checkDimension(query);
+        List<T> result = new ArrayList<>();
+        collect(query, result);
+        return result;
+    }
+
+    private void collect(Box query, List<T> result) {
+        int a = AbstractCascade.search(keys, query.getMin().get(dim), false);
+        int b = AbstractCascade.search(keys, query.getMax().get(dim), true);
+        if (a >= b) {
+            return;
+        }
+        if (cascade != null) {
+            cascade.collect(query.getMin().get(dim), query.getMin().get(dim + 1),
+                    query.getMax().get(dim), query.getMax().get(dim + 1), (ids, from, to) -> {
+                        for (int i = from; i < to; i++) {
+                            result.add(items[ids[i]]);
+                        }
+                    });
+        } else if (root == null) {
+            result.addAll(Arrays.asList(items).subList(a, b));
+        } else {
+            collect(root, a, b, query, result);
+        }
+    }
+
+    private int count(Node<T> node, int a, int b, Box query) {
+        if (a <= node.lo && node.hi <= b) {
+            return node.nextDimTree.getCount(query);
+        }
+        int count = 0;
+        if (a < node.left.hi) {
+            count += count(node.left, a, b, query);
+        }
+        if (b > node.right.lo) {
+            count += count(node.right, a, b, query);
+        }
+        return count;
+    }
+
+    private void collect(Node<T> node, int a, int b, Box query, List<T> result) {
+        if (a <= node.lo && node.hi <= b) {
+            node.nextDimTree.collect(query, result);
+            return;
+        }
+        if (a < node.left.hi) {
+            collect(node.left, a, b, query, result);
+        }
+        if (b > node.right.lo) {
+            collect(node.right, a, b, query, result);
+        }
+    }
+
+    private Node<T> build(int lo, int hi) {
+        T[] sorted = Arrays.copyOfRange(items, lo, hi);
+        Arrays.sort(sorted, getOrder(dim + 1, accessor));
+        Node<T> node = new Node<>(lo, hi, new MultiRangeTree<>(sorted, dim + 1, dimension, accessor));
+        if (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            node.left = build(lo, mid);
+            node.right = build(mid, hi);
+        }
+        return node;
+    }
+
+    private void checkDimension(Box query) {
+        if (query.getDimension() != dimension) {
+            throw new IllegalArgumentException("Query is not " + dimension + "-dimensional");
+        }
+    }
+
+    private static <T> Comparator<T> getOrder(int dim, CoordinateAccessor<? super T> accessor) {
+        return Comparator.comparingDouble(item -> accessor.get(item, dim));
+    }
+
+    private static class Node<T> {
+        final int lo;
+        final int hi;
+        final MultiRangeTree<T> nextDimTree;
+        Node<T> left;
+        Node<T> right;
+
+        Node(int lo, int hi, MultiRangeTree<T> nextDimTree) {
+            this.lo = lo;
+            this.hi = hi;
+            this.nextDimTree = nextDimTree;
+        }
+    }
+}
@@ -13,6 +13,8 @@ class Node {
     List<Point> points;
     int size = 1;
     int count;
+    // aggregate of the points in the subtree for the aggregator of the tree, null stands for no points
+    Object aggregate;
 
     Node(double key) {
         this.key = key;
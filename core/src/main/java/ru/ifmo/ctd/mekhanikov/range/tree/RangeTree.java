@@ -1,30 +1,98 @@
 package ru.ifmo.ctd.mekhanikov.range.tree;
 
+import ru.ifmo.ctd.mekhanikov.range.Aggregator;
 import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.RangeCursor;
 import ru.ifmo.ctd.mekhanikov.range.RangeQuery;
 import ru.ifmo.ctd.mekhanikov.range.Rectangle;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
 
 public class RangeTree implements RangeQuery {
 
     private static final double ALPHA = 0.1;
+    private static final int REBUILD_FACTOR = 4;
+    // smaller subtrees of a parallel build are built by the thread that reached them
+    private static final int PARALLEL_BUILD_SIZE = 4096;
+    // parallel queries with smaller results, and subtrees smaller than this within them, are copied by one thread
+    private static final int PARALLEL_GET_SIZE = 8192;
 
     private Node root;
     private int dim;
+    // null if no aggregates are kept, otherwise they are kept by the last dimension trees
+    private final Aggregator<Object> aggregator;
+    // shared with the secondary trees, null if nothing is counted
+    private final TreeCounters counters;
 
     public RangeTree() {
-        this(2);
+        this(2, null, null);
     }
 
-    private RangeTree(int dim) {
+    // keeps the aggregate of every canonical subtree, so aggregate queries with this aggregator take O(log^2 n)
+    public RangeTree(Aggregator<?> aggregator) {
+        this(2, aggregator, null);
+    }
+
+    public RangeTree(TreeCounters counters) {
+        this(2, null, counters);
+    }
+
+    // either of the arguments may be null
+    public RangeTree(Aggregator<?> aggregator, TreeCounters counters) {
+        this(2, aggregator, counters);
+    }
+
+    @SuppressWarnings("unchecked")
+    private RangeTree(int dim, Aggregator<?> aggregator, TreeCounters counters) {
         this.dim = dim;
-        root = new Node(Double.NEGATIVE_INFINITY);
-        addBorders();
-        if (dim != 1) {
-            root.nextDimTree = new RangeTree(dim - 1);
+        this.aggregator = (Aggregator<Object>) aggregator;
+        this.counters = counters;
+        clear();
+    }
+
+    public static RangeTree build(Collection<? extends Point> points) {
+        return build(points, ForkJoinPool.commonPool());
+    }
+
+    // left and right subtrees and the secondary trees of a node are built as separate fork-join tasks
+    public static RangeTree build(Collection<? extends Point> points, ForkJoinPool pool) {
+        RangeTree tree = new RangeTree();
+        if (!points.isEmpty()) {
+            List<Point> batch = new ArrayList<>(points);
+            tree.replace(tree.root, pool.invoke(ForkJoinTask.adapt(() -> tree.build(batch, true))));
+            tree.addBorders();
         }
+        return tree;
+    }
+
+    // null if the tree was created without counters
+    public TreeCounters getCounters() {
+        return counters;
+    }
+
+    // number of nodes on the longest path from the root of the first dimension tree to a leaf
+    public int getHeight() {
+        return getHeight(root);
+    }
+
+    // nodes of the first dimension tree and of all secondary trees, takes time proportional to the count
+    public long getNodeCount() {
+        return getNodeCount(root);
     }
 
     @Override
@@ -38,6 +106,8 @@ public class RangeTree implements RangeQuery {
                 oldNode.nextDimTree.add(p);
             } else {
                 oldNode.points.add(p);
+                // equal points are combined in insertion order, the aggregator is commutative
+                oldNode.aggregate = combine(oldNode.aggregate, lift(p));
             }
             oldNode.count++;
             validateSizes(oldNode);
@@ -58,49 +128,358 @@ public class RangeTree implements RangeQuery {
         if (dim == 1) {
             node.points.remove(p);
             node.count--;
+            aggregateLeaf(node);
             validateSizes(node.parent);
             if (node.points.isEmpty()) {
                 remove(node);
             }
         } else {
             node.nextDimTree.remove(p);
+            node.count = node.nextDimTree.root.count;
             removeFromParents(node, p);
+            validateSizes(node.parent);
             if (node.nextDimTree.root.size == 3) {
                 remove(node);
             }
         }
     }
 
+    // sorted batch is merged top-down, a subtree is rebuilt at most once when the batch would unbalance it
+    @Override
+    public void addAll(Collection<? extends Point> points) {
+        if (points.isEmpty()) {
+            return;
+        }
+        List<Point> batch = new ArrayList<>(points);
+        batch.sort((a, b) -> Double.compare(getKey(a), getKey(b)));
+        List<Point> nextBatch = null;
+        if (dim > 1) {
+            nextBatch = new ArrayList<>(points);
+            nextBatch.sort((a, b) -> Double.compare(root.nextDimTree.getKey(a), root.nextDimTree.getKey(b)));
+        }
+        addAll(root, batch, nextBatch);
+        addBorders();
+    }
+
+    // sorted batch is merged top-down like in addAll, leaves left without points are spliced out afterwards
+    @Override
+    public void removeAll(Collection<? extends Point> points) {
+        if (points.isEmpty()) {
+            return;
+        }
+        List<Point> batch = new ArrayList<>(points);
+        batch.sort((a, b) -> Double.compare(getKey(a), getKey(b)));
+        List<Point> nextBatch = null;
+        if (dim > 1) {
+            nextBatch = new ArrayList<>(points);
+            nextBatch.sort((a, b) -> Double.compare(root.nextDimTree.getKey(a), root.nextDimTree.getKey(b)));
+        }
+        removeSorted(batch, nextBatch);
+    }
+
     @Override
     public List<Point> get(Rectangle query) {
         List<Point> result = new ArrayList<>();
+        for (Node yRoot : getSubtrees(query)) {
+            result.addAll(getAll(yRoot));
+        }
+        return result;
+    }
+
+    // every canonical y-subtree is copied into its own slice of a preallocated result, large ones by several tasks
+    public List<Point> get(Rectangle query, ForkJoinPool pool) {
         Point bl = query.getBottomLeft();
         Point tr = query.getTopRight();
-        List<Node> xSubtrees = getSubtrees(bl.getX(), tr.getX());
-        for (Node xRoot : xSubtrees) {
-            List<Node> ySubtrees = xRoot.nextDimTree.getSubtrees(bl.getY(), tr.getY());
-            for (Node yRoot : ySubtrees) {
-                result.addAll(getAll(yRoot));
+        List<Node> ySubtrees = new ArrayList<>();
+        int total = 0;
+        for (Node xRoot : getSubtrees(bl.getX(), tr.getX())) {
+            for (Node yRoot : xRoot.nextDimTree.getSubtrees(bl.getY(), tr.getY())) {
+                ySubtrees.add(yRoot);
+                total += yRoot.count;
             }
         }
-        return result;
+        if (total < PARALLEL_GET_SIZE) {
+            return get(query);
+        }
+        Point[] result = new Point[total];
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        int offset = 0;
+        for (Node yRoot : ySubtrees) {
+            tasks.add(new CopyTask(yRoot, result, offset));
+            offset += yRoot.count;
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        return new ArrayList<>(Arrays.asList(result));
+    }
+
+    // other aggregators than the one of the tree fold the reported points; the kept aggregates are combined in
+    // the order of the x and y slabs, which is fine as Aggregator requires a commutative combine
+    @Override
+    @SuppressWarnings("unchecked")
+    public <A> A aggregate(Rectangle query, Aggregator<A> aggregator) {
+        if (aggregator != this.aggregator) {
+            return RangeQuery.super.aggregate(query, aggregator);
+        }
+        Point bl = query.getBottomLeft();
+        Point tr = query.getTopRight();
+        Object result = null;
+        for (Node xRoot : getSubtrees(bl.getX(), tr.getX())) {
+            for (Node yRoot : xRoot.nextDimTree.getSubtrees(bl.getY(), tr.getY())) {
+                result = combine(result, yRoot.aggregate);
+            }
+        }
+        return result == null ? aggregator.identity() : (A) result;
     }
 
     @Override
     public int getCount(Rectangle query) {
-        int count = 0;
+        Point bl = query.getBottomLeft();
+        Point tr = query.getTopRight();
+        return getCount(bl.getX(), bl.getY(), tr.getX(), tr.getY());
+    }
+
+    @Override
+    public int getCount(double x1, double y1, double x2, double y2) {
+        return walkSubtrees(x1, x2, y1, y2, null);
+    }
+
+    // uniform sample of min(k, count) points inside the query without replacement,
+    // k distinct ranks are drawn and each one is found by descending the counts in O(log n)
+    public List<Point> sample(Rectangle query, int k, Random random) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Sample size must not be negative: " + k);
+        }
+        Point bl = query.getBottomLeft();
+        Point tr = query.getTopRight();
+        List<Node> ySubtrees = new ArrayList<>();
+        int total = 0;
+        for (Node xRoot : getSubtrees(bl.getX(), tr.getX())) {
+            for (Node yRoot : xRoot.nextDimTree.getSubtrees(bl.getY(), tr.getY())) {
+                ySubtrees.add(yRoot);
+                total += yRoot.count;
+            }
+        }
+        if (k >= total) {
+            return get(query);
+        }
+        int[] starts = new int[ySubtrees.size()];
+        for (int i = 1; i < starts.length; i++) {
+            starts[i] = starts[i - 1] + ySubtrees.get(i - 1).count;
+        }
+        // Floyd's algorithm
+        Set<Integer> ranks = new HashSet<>();
+        for (int i = total - k; i < total; i++) {
+            int rank = random.nextInt(i + 1);
+            ranks.add(ranks.contains(rank) ? i : rank);
+        }
+        List<Point> result = new ArrayList<>(k);
+        for (int rank : ranks) {
+            int subtree = Arrays.binarySearch(starts, rank);
+            if (subtree < 0) {
+                subtree = -subtree - 2;
+            }
+            // empty subtrees share their start with the next one
+            while (ySubtrees.get(subtree).count == 0) {
+                subtree++;
+            }
+            result.add(select(ySubtrees.get(subtree), rank - starts[subtree]));
+        }
+        return result;
+    }
+
+    // differs from getCount by at most maxError. Canonical x-subtrees are handled from the smallest one,
+    // while their worst case errors fit into maxError their y-ranges are not searched and the share of points
+    // within the y-range is assumed to be the same as in the whole tree.
+    public int getApproximateCount(Rectangle query, int maxError) {
+        if (root.count == 0) {
+            return 0;
+        }
         Point bl = query.getBottomLeft();
         Point tr = query.getTopRight();
         List<Node> xSubtrees = getSubtrees(bl.getX(), tr.getX());
+        xSubtrees.sort(Comparator.comparingInt(node -> node.count));
+        double share = (double) root.nextDimTree.count(bl.getY(), tr.getY()) / root.count;
+        int count = 0;
+        int budget = maxError;
         for (Node xRoot : xSubtrees) {
-            List<Node> ySubtrees = xRoot.nextDimTree.getSubtrees(bl.getY(), tr.getY());
-            if (!ySubtrees.isEmpty()) {
-                count += ySubtrees.stream().map(node -> node.count).reduce((a, b) -> a + b).get();
+            int estimate = (int) Math.round(xRoot.count * share);
+            int error = Math.max(estimate, xRoot.count - estimate);
+            if (error <= budget) {
+                budget -= error;
+                count += estimate;
+            } else {
+                count += xRoot.nextDimTree.count(bl.getY(), tr.getY());
             }
         }
         return count;
     }
 
+    @Override
+    public Iterator<Point> iterator(Rectangle query) {
+        return new RangeIterator(query);
+    }
+
+    @Override
+    public RangeCursor cursor(Rectangle query) {
+        return new RangeIterator(query);
+    }
+
+    // last dimension subtrees that together hold the points inside the query, their counts sum to the answer
+    List<Node> getSubtrees(Rectangle query) {
+        Point bl = query.getBottomLeft();
+        Point tr = query.getTopRight();
+        List<Node> result = new ArrayList<>();
+        for (Node xRoot : getSubtrees(bl.getX(), tr.getX())) {
+            result.addAll(xRoot.nextDimTree.getSubtrees(bl.getY(), tr.getY()));
+        }
+        return result;
+    }
+
+    // points of subtrees returned by getSubtrees(query)
+    RangeCursor cursor(List<Node> subtrees) {
+        return new RangeIterator(subtrees);
+    }
+
+    private void clear() {
+        root = new Node(Double.NEGATIVE_INFINITY);
+        addBorders();
+        if (dim != 1) {
+            root.nextDimTree = new RangeTree(dim - 1, aggregator, counters);
+        }
+    }
+
+    // nextBatch holds the same points sorted by the key of the next dimension
+    private void addAll(Node node, List<Point> batch, List<Point> nextBatch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (node.isLeaf() || batch.size() >= node.count) {
+            rebuild(node, batch);
+            return;
+        }
+        int split = 0;
+        while (split < batch.size() && getKey(batch.get(split)) <= node.key) {
+            split++;
+        }
+        // every new point may add two nodes to the side it goes to
+        int leftSize = node.left.size + 2 * split;
+        int rightSize = node.right.size + 2 * (batch.size() - split);
+        if (leftSize * ALPHA > rightSize || rightSize * ALPHA > leftSize) {
+            rebuild(node, batch);
+            return;
+        }
+        List<Point> leftNextBatch = null;
+        List<Point> rightNextBatch = null;
+        if (dim > 1) {
+            node.nextDimTree.addAll(node.nextDimTree.root, nextBatch, null);
+            node.nextDimTree.addBorders();
+            leftNextBatch = split(nextBatch, node.key, true);
+            rightNextBatch = split(nextBatch, node.key, false);
+        }
+        addAll(node.left, batch.subList(0, split), leftNextBatch);
+        addAll(node.right, batch.subList(split, batch.size()), rightNextBatch);
+        node.size = node.left.size + node.right.size + 1;
+        node.count = node.left.count + node.right.count;
+        aggregateInner(node);
+    }
+
+    private void removeSorted(List<Point> batch, List<Point> nextBatch) {
+        List<Double> emptied = new ArrayList<>();
+        removeAll(root, batch, nextBatch, emptied);
+        if (root.count == 0) {
+            clear();
+            return;
+        }
+        addBorders();
+        for (double key : emptied) {
+            Node node = root.find(key);
+            if (node.key == key && (dim > 1 ? node.nextDimTree.root.size == 3 : node.points.isEmpty())) {
+                remove(node);
+            }
+        }
+    }
+
+    // points missing from the tree are skipped, keys of the leaves that lose all their points go to emptied
+    private void removeAll(Node node, List<Point> batch, List<Point> nextBatch, List<Double> emptied) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (node.isLeaf()) {
+            if (node.nextDimTree != null) {
+                node.nextDimTree.removeSorted(nextBatch, null);
+                node.count = node.nextDimTree.root.count;
+            } else if (node.points != null) {
+                batch.forEach(node.points::remove);
+                node.count = node.points.size();
+                aggregateLeaf(node);
+            }
+            if (node.count == 0 && !Double.isInfinite(node.key)) {
+                emptied.add(node.key);
+            }
+            return;
+        }
+        int split = 0;
+        while (split < batch.size() && getKey(batch.get(split)) <= node.key) {
+            split++;
+        }
+        // every removed point may take two nodes from its side
+        int leftSize = node.left.size - 2 * split;
+        int rightSize = node.right.size - 2 * (batch.size() - split);
+        if (batch.size() * REBUILD_FACTOR >= node.count || leftSize * ALPHA > rightSize
+                || rightSize * ALPHA > leftSize) {
+            List<Point> remaining = getAll(node);
+            Map<Point, Integer> removed = Deltas.multiset(batch);
+            remaining.removeIf(p -> Deltas.hide(removed, p));
+            // a subtree cannot be rebuilt empty, its leaves are spliced out one by one instead
+            if (!remaining.isEmpty() || node == root) {
+                if (counters != null) {
+                    counters.recordRebuild(node.size);
+                }
+                if (remaining.isEmpty()) {
+                    node.count = 0;
+                } else {
+                    // ancestors keep the largest key of their left subtrees, which may be gone now
+                    double maxKey = node.getMax().key;
+                    replace(node, build(remaining, false));
+                    validateKeys(node.parent, maxKey, node.getMax().key);
+                }
+                return;
+            }
+        }
+        List<Point> leftNextBatch = null;
+        List<Point> rightNextBatch = null;
+        if (dim > 1) {
+            node.nextDimTree.removeSorted(nextBatch, null);
+            leftNextBatch = split(nextBatch, node.key, true);
+            rightNextBatch = split(nextBatch, node.key, false);
+        }
+        removeAll(node.left, batch.subList(0, split), leftNextBatch, emptied);
+        removeAll(node.right, batch.subList(split, batch.size()), rightNextBatch, emptied);
+        node.size = node.left.size + node.right.size + 1;
+        node.count = node.left.count + node.right.count;
+        aggregateInner(node);
+    }
+
+    private void rebuild(Node node, List<Point> batch) {
+        if (counters != null) {
+            counters.recordRebuild(node.size);
+        }
+        List<Point> points = getAll(node);
+        points.addAll(batch);
+        replace(node, build(points, false));
+    }
+
+    private void replace(Node node, Node newNode) {
+        validateRefs(node, newNode.left, newNode.right);
+        node.key = newNode.key;
+        node.size = newNode.size;
+        node.count = newNode.count;
+        node.aggregate = newNode.aggregate;
+        node.nextDimTree = newNode.nextDimTree;
+        node.points = newNode.points;
+        validateSizes(node.parent);
+    }
+
     private void balance(Node node) {
         Node target = null;
         for (Node curNode = node; curNode != null; curNode = curNode.parent) {
@@ -116,21 +495,52 @@ public class RangeTree implements RangeQuery {
     }
 
     private void rebuild(Node root) {
+        if (counters != null) {
+            counters.recordRebuild(root.size);
+        }
         List<Point> points = getAll(root);
-        Node newRoot = build(points);
+        Node newRoot = build(points, false);
         validateRefs(root, newRoot.left, newRoot.right);
         root.size = root.left.size + root.right.size + 1;
         root.key = newRoot.key;
     }
 
-    private Node build(List<Point> points) {
+    // parallel builds presort with parallel streams, which run in the pool of the calling task
+    private Node build(List<Point> points, boolean parallel) {
+        Comparator<Point> order = Comparator.comparingDouble(this::getKey);
+        List<Point> nextPoints = null;
+        if (parallel) {
+            points = points.parallelStream().sorted(order).collect(Collectors.toList());
+            if (dim > 1) {
+                nextPoints = points.parallelStream()
+                        .sorted(Comparator.comparingDouble(root.nextDimTree::getKey)).collect(Collectors.toList());
+            }
+        } else {
+            points.sort(order);
+            if (dim > 1) {
+                nextPoints = new ArrayList<>(points);
+                nextPoints.sort(Comparator.comparingDouble(root.nextDimTree::getKey));
+            }
+        }
+        return build(points, nextPoints, parallel);
+    }
+
+    // points are sorted by key, nextPoints are the same points sorted by the key of the next dimension,
+    // so the secondary trees are built from sublists that are already in order
+    private Node build(List<Point> points, List<Point> nextPoints, boolean parallel) {
+        boolean fork = parallel && points.size() >= PARALLEL_BUILD_SIZE;
         RangeTree nextDimTree = null;
+        ForkJoinTask<Node> nextDimRoot = null;
         if (dim > 1) {
-            nextDimTree = new RangeTree(dim - 1);
-            nextDimTree.root = root.nextDimTree.build(points);
-            nextDimTree.addBorders();
+            nextDimTree = new RangeTree(dim - 1, aggregator, counters);
+            RangeTree nextDim = root.nextDimTree;
+            if (fork) {
+                nextDimRoot = ForkJoinTask.adapt(() -> nextDim.build(nextPoints, null, true)).fork();
+            } else {
+                nextDimTree.root = nextDim.build(nextPoints, null, parallel);
+                nextDimTree.addBorders();
+            }
         }
-        points.sort((a, b) -> Double.compare(getKey(a), getKey(b)));
         int count = 0;
         Point prev = null;
         for (Point p : points) {
@@ -140,6 +550,10 @@ public class RangeTree implements RangeQuery {
             prev = p;
         }
         Node root;
+        if (nextDimRoot != null) {
+            nextDimTree.root = nextDimRoot.join();
+            nextDimTree.addBorders();
+        }
         if (count == 1) {
             root = new Node(getKey(points.get(0)));
             if (dim > 1) {
@@ -149,6 +563,7 @@ public class RangeTree implements RangeQuery {
                 root.points.addAll(points);
             }
             root.count = points.size();
+            aggregateLeaf(root);
             return root;
         }
         int mid = count / 2;
@@ -167,12 +582,26 @@ public class RangeTree implements RangeQuery {
                 while (getKey(points.get(i)) == getKey(p)) {
                     i++;
                 }
-                Node left = build(points.subList(0, i));
-                Node right = build(points.subList(i, points.size()));
+                List<Point> leftPoints = points.subList(0, i);
+                List<Point> rightPoints = points.subList(i, points.size());
+                List<Point> leftNextPoints = split(nextPoints, getKey(p), true);
+                List<Point> rightNextPoints = split(nextPoints, getKey(p), false);
+                Node left;
+                Node right;
+                if (fork) {
+                    ForkJoinTask<Node> leftTask =
+                            ForkJoinTask.adapt(() -> build(leftPoints, leftNextPoints, true)).fork();
+                    right = build(rightPoints, rightNextPoints, true);
+                    left = leftTask.join();
+                } else {
+                    left = build(leftPoints, leftNextPoints, parallel);
+                    right = build(rightPoints, rightNextPoints, parallel);
+                }
                 validateRefs(root, left, right);
                 root.key = left.getMax().key;
                 root.size = left.size + right.size + 1;
                 root.count = left.count + right.count;
+                aggregateInner(root);
                 return root;
             }
             prev = p;
@@ -180,6 +609,20 @@ public class RangeTree implements RangeQuery {
         throw new AssertionError("Should not get here");
     }
 
+    // points of the sorted list with key <= splitKey (or > splitKey), order is preserved
+    private List<Point> split(List<Point> points, double splitKey, boolean left) {
+        if (points == null) {
+            return null;
+        }
+        List<Point> result = new ArrayList<>();
+        for (Point p : points) {
+            if ((getKey(p) <= splitKey) == left) {
+                result.add(p);
+            }
+        }
+        return result;
+    }
+
     private void addBorders() {
         Node max = root.getMax();
         if (max.key != Double.POSITIVE_INFINITY) {
@@ -212,11 +655,40 @@ public class RangeTree implements RangeQuery {
         return result;
     }
 
+    // point with the given rank in key order within a last dimension subtree
+    private static Point select(Node node, int rank) {
+        while (!node.isLeaf()) {
+            if (rank < node.left.count) {
+                node = node.left;
+            } else {
+                rank -= node.left.count;
+                node = node.right;
+            }
+        }
+        return node.points.get(rank);
+    }
+
+    // copies the points of a last dimension subtree in key order
+    private static int copy(Node node, Point[] result, int offset) {
+        if (node.isLeaf()) {
+            if (node.points != null) {
+                for (Point p : node.points) {
+                    result[offset++] = p;
+                }
+            }
+            return offset;
+        }
+        return copy(node.right, result, copy(node.left, result, offset));
+    }
+
     private void insert(Node oldNode, Point p) {
         double key = getKey(p);
         Node copiedNode = copyNode(oldNode);
         Node newNode = new Node(key);
         newNode.count = 1;
+        if (dim == 1) {
+            newNode.aggregate = lift(p);
+        }
         if (oldNode.key < newNode.key) {
             validateRefs(oldNode, copiedNode, newNode);
             oldNode.key = copiedNode.key;
@@ -226,7 +698,7 @@ public class RangeTree implements RangeQuery {
         }
         validateSizes(oldNode);
         if (dim > 1) {
-            newNode.nextDimTree = new RangeTree(dim - 1);
+            newNode.nextDimTree = new RangeTree(dim - 1, aggregator, counters);
             newNode.nextDimTree.add(p);
             oldNode.nextDimTree.add(p);
         } else {
@@ -239,9 +711,10 @@ public class RangeTree implements RangeQuery {
         Node copiedNode = new Node(oldNode.key);
         copiedNode.size = oldNode.size;
         copiedNode.count = oldNode.count;
+        copiedNode.aggregate = oldNode.aggregate;
         if (dim > 1) {
             copiedNode.nextDimTree = oldNode.nextDimTree;
-            oldNode.nextDimTree = new RangeTree(dim - 1);
+            oldNode.nextDimTree = new RangeTree(dim - 1, aggregator, counters);
             if (copiedNode.nextDimTree != null) {
                 for (Point p : getAll(copiedNode.nextDimTree.root)) {
                     oldNode.nextDimTree.add(p);
@@ -268,12 +741,29 @@ public class RangeTree implements RangeQuery {
         validateRefs(parent, sibling.left, sibling.right);
         parent.size = sibling.size;
         parent.count = sibling.count;
+        parent.aggregate = sibling.aggregate;
         parent.points = sibling.points;
         validateSizes(parent);
         validateKeys(parent.parent, node.key, newKey);
     }
 
     private List<Node> getSubtrees(double a, double b) {
+        List<Node> result = new ArrayList<>();
+        walkSubtrees(a, b, 0, 0, result);
+        return result;
+    }
+
+    // number of points with keys in [a, b] in a last dimension tree
+    private int count(double a, double b) {
+        return walkSubtrees(a, b, 0, 0, null);
+    }
+
+    // Walks up from the predecessor of a and the successor of b to their common ancestor, the right children
+    // hanging off the left path and the left children hanging off the right path are the canonical subtrees
+    // of [a, b]. They are added to subtrees if it is given, otherwise the number of their points with next keys
+    // in [c, d] is returned (all their points in the last dimension). Counting captures nothing and allocates
+    // nothing, so getCount creates no garbage.
+    private int walkSubtrees(double a, double b, double c, double d, List<Node> subtrees) {
         Node pred = root.find(a).getPred();
         Node succ = root.find(b);
         if (succ.key == b) {
@@ -283,32 +773,59 @@ public class RangeTree implements RangeQuery {
         Node right = succ.parent;
         int leftHeight = left.getHeight();
         int rightHeight = right.getHeight();
-        List<Node> result = new ArrayList<>();
+        // both paths from the bounds to the root
+        int visited = leftHeight + rightHeight;
+        int found = 0;
+        int sum = 0;
         while (leftHeight > rightHeight) {
             if (pred.key <= left.key) {
-                result.add(left.right);
+                sum += visit(left.right, c, d, subtrees);
+                found++;
             }
             left = left.parent;
             leftHeight--;
         }
         while (leftHeight < rightHeight) {
             if (succ.key > right.key) {
-                result.add(right.left);
+                sum += visit(right.left, c, d, subtrees);
+                found++;
             }
             right = right.parent;
             rightHeight--;
         }
         while (left != right) {
             if (pred.key <= left.key) {
-                result.add(left.right);
+                sum += visit(left.right, c, d, subtrees);
+                found++;
             }
             if (succ.key > right.key) {
-                result.add(right.left);
+                sum += visit(right.left, c, d, subtrees);
+                found++;
             }
             left = left.parent;
             right = right.parent;
         }
-        return result;
+        if (counters != null) {
+            counters.recordSearch(found, visited);
+        }
+        return sum;
+    }
+
+    private int visit(Node node, double c, double d, List<Node> subtrees) {
+        if (subtrees != null) {
+            subtrees.add(node);
+            return 0;
+        }
+        return dim > 1 ? node.nextDimTree.count(c, d) : node.count;
+    }
+
+    private static int getHeight(Node node) {
+        return node.isLeaf() ? 1 : 1 + Math.max(getHeight(node.left), getHeight(node.right));
+    }
+
+    private static long getNodeCount(Node node) {
+        long count = node.nextDimTree == null ? 1 : 1 + node.nextDimTree.getNodeCount();
+        return node.isLeaf() ? count : count + getNodeCount(node.left) + getNodeCount(node.right);
     }
 
     private void addToParents(Node node, Point p) {
@@ -328,6 +845,7 @@ public class RangeTree implements RangeQuery {
             if (!node.isLeaf()) {
                 node.size = node.left.size + node.right.size + 1;
                 node.count = node.left.count + node.right.count;
+                aggregateInner(node);
             }
             node = node.parent;
         }
@@ -342,6 +860,34 @@ public class RangeTree implements RangeQuery {
         }
     }
 
+    private Object lift(Point p) {
+        return aggregator == null ? null : aggregator.lift(p);
+    }
+
+    private Object combine(Object a, Object b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null ? a : aggregator.combine(a, b);
+    }
+
+    private void aggregateLeaf(Node leaf) {
+        if (aggregator != null && dim == 1) {
+            leaf.aggregate = null;
+            if (leaf.points != null) {
+                for (Point p : leaf.points) {
+                    leaf.aggregate = combine(leaf.aggregate, aggregator.lift(p));
+                }
+            }
+        }
+    }
+
+    private void aggregateInner(Node node) {
+        if (aggregator != null && dim == 1) {
+            node.aggregate = combine(node.left.aggregate, node.right.aggregate);
+        }
+    }
+
     private double getKey(Point p) {
         if (dim == 2) {
             return p.getX();
@@ -362,4 +908,140 @@ public class RangeTree implements RangeQuery {
             parent.right = right;
         }
     }
+
+    private static class CopyTask extends RecursiveAction {
+        private final Node node;
+        private final Point[] result;
+        private final int offset;
+
+        CopyTask(Node node, Point[] result, int offset) {
+            while (node.nextDimTree != null) {
+                node = node.nextDimTree.root;
+            }
+            this.node = node;
+            this.result = result;
+            this.offset = offset;
+        }
+
+        @Override
+        protected void compute() {
+            if (node.count < PARALLEL_GET_SIZE || node.isLeaf()) {
+                copy(node, result, offset);
+            } else {
+                invokeAll(new CopyTask(node.left, result, offset),
+                        new CopyTask(node.right, result, offset + node.left.count));
+            }
+        }
+    }
+
+    // walks the same leaves as get, one canonical subtree at a time
+    private class RangeIterator extends RangeCursor {
+        private final double y1;
+        private final double y2;
+        private final List<Node> xSubtrees;
+        private int xIndex;
+        private List<Node> ySubtrees;
+        private int yIndex;
+        private Node leaf;
+        private double maxKey;
+        private int pointIndex;
+
+        RangeIterator(Rectangle query) {
+            y1 = query.getBottomLeft().getY();
+            y2 = query.getTopRight().getY();
+            xSubtrees = getSubtrees(query.getBottomLeft().getX(), query.getTopRight().getX());
+        }
+
+        // walks last dimension subtrees found beforehand
+        RangeIterator(List<Node> ySubtrees) {
+            y1 = 0;
+            y2 = 0;
+            xSubtrees = Collections.emptyList();
+            this.ySubtrees = ySubtrees;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (true) {
+                if (leaf != null) {
+                    if (pointIndex < leaf.count) {
+                        return true;
+                    }
+                    nextLeaf();
+                } else if (!nextSubtree()) {
+                    return false;
+                } else {
+                    start(ySubtrees.get(yIndex++), 0);
+                }
+            }
+        }
+
+        @Override
+        public Point next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return leaf.points.get(pointIndex++);
+        }
+
+        // whole subtrees are skipped by their counts, the first partially skipped one is entered by rank
+        @Override
+        public int skip(int count) {
+            int skipped = 0;
+            while (skipped < count && leaf != null) {
+                int step = Math.min(count - skipped, leaf.count - pointIndex);
+                pointIndex += step;
+                skipped += step;
+                if (pointIndex == leaf.count) {
+                    nextLeaf();
+                }
+            }
+            while (skipped < count && nextSubtree()) {
+                Node yRoot = ySubtrees.get(yIndex++);
+                if (skipped + yRoot.count <= count) {
+                    skipped += yRoot.count;
+                } else {
+                    start(yRoot, count - skipped);
+                    skipped = count;
+                }
+            }
+            return skipped;
+        }
+
+        // makes sure ySubtrees has an unvisited subtree, returns false when there is none left
+        private boolean nextSubtree() {
+            while (ySubtrees == null || yIndex == ySubtrees.size()) {
+                if (xIndex == xSubtrees.size()) {
+                    return false;
+                }
+                ySubtrees = xSubtrees.get(xIndex++).nextDimTree.getSubtrees(y1, y2);
+                yIndex = 0;
+            }
+            return true;
+        }
+
+        // positions the iterator at the point of the given rank inside the subtree
+        private void start(Node yRoot, int rank) {
+            maxKey = yRoot.getMax().key;
+            Node node = yRoot;
+            while (!node.isLeaf()) {
+                if (rank < node.left.count) {
+                    node = node.left;
+                } else {
+                    rank -= node.left.count;
+                    node = node.right;
+                }
+            }
+            leaf = node;
+            pointIndex = rank;
+        }
+
+        private void nextLeaf() {
+            leaf = leaf.getSucc();
+            if (leaf != null && leaf.key > maxKey) {
+                leaf = null;
+            }
+            pointIndex = 0;
+        }
+    }
 }
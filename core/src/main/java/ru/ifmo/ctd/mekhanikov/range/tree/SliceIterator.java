@@ -0,0 +1,59 @@
+package ru.ifmo.ctd.mekhanikov.range.tree;
+
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.RangeCursor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// iterates over points[ids[from..to)] for every added slice in turn
+class SliceIterator extends RangeCursor implements Cascade.SliceConsumer {
+    private final Point[] points;
+    private final List<int[]> slices = new ArrayList<>();
+    private final List<int[]> ids = new ArrayList<>();
+    private int slice;
+    private int index;
+    private int end;
+
+    SliceIterator(Point[] points) {
+        this.points = points;
+    }
+
+    @Override
+    public void add(int[] ids, int from, int to) {
+        if (from < to) {
+            this.ids.add(ids);
+            slices.add(new int[]{from, to});
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (index == end && slice < slices.size()) {
+            int[] bounds = slices.get(slice++);
+            index = bounds[0];
+            end = bounds[1];
+        }
+        return index < end;
+    }
+
+    @Override
+    public int skip(int count) {
+        int skipped = 0;
+        while (skipped < count && hasNext()) {
+            int step = Math.min(count - skipped, end - index);
+            index += step;
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public Point next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return points[ids.get(slice - 1)[index++]];
+    }
+}
@@ -0,0 +1,98 @@
+package ru.ifmo.ctd.mekhanikov.range.tree;
+
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.RangeCursor;
+import ru.ifmo.ctd.mekhanikov.range.RangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+// Range tree built once from a fixed set of points, y bounds are passed down by fractional cascading,
+// so queries take O(log n + k).
+public class StaticRangeTree implements RangeQuery {
+
+    private static final Comparator<Point> X_ORDER =
+            Comparator.comparingDouble(Point::getX).thenComparingDouble(Point::getY);
+
+    private final Point[] points;
+    private final Cascade cascade;
+
+    private StaticRangeTree(Point[] points) {
+        this.points = points;
+        int n = points.length;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = points[i].getX();
+            ys[i] = points[i].getY();
+        }
+        cascade = new Cascade(xs, ys);
+    }
+
+    public static StaticRangeTree build(Collection<? extends Point> points) {
+        Point[] sorted = points.toArray(new Point[points.size()]);
+        Arrays.sort(sorted, X_ORDER);
+        return new StaticRangeTree(sorted);
+    }
+
+    public int size() {
+        return points.length;
+    }
+
+    // points in x order, must not be modified
+    Point[] getPoints() {
+        return points;
+    }
+
+    Cascade getCascade() {
+        return cascade;
+    }
+
+    @Override
+    public void add(Point p) {
+        throw new UnsupportedOperationException("StaticRangeTree is immutable");
+    }
+
+    @Override
+    public void remove(Point p) {
+        throw new UnsupportedOperationException("StaticRangeTree is immutable");
+    }
+
+    @Override
+    public List<Point> get(Rectangle query) {
+        List<Point> result = new ArrayList<>();
+        iterator(query).forEachRemaining(result::add);
+        return result;
+    }
+
+    @Override
+    public int getCount(Rectangle query) {
+        Point bl = query.getBottomLeft();
+        Point tr = query.getTopRight();
+        return getCount(bl.getX(), bl.getY(), tr.getX(), tr.getY());
+    }
+
+    @Override
+    public int getCount(double x1, double y1, double x2, double y2) {
+        return cascade.getCount(x1, y1, x2, y2);
+    }
+
+    @Override
+    public Iterator<Point> iterator(Rectangle query) {
+        return cursor(query);
+    }
+
+    @Override
+    public RangeCursor cursor(Rectangle query) {
+        SliceIterator iterator = new SliceIterator(points);
+        Point bl = query.getBottomLeft();
+        Point tr = query.getTopRight();
+        cascade.collect(bl.getX(), bl.getY(), tr.getX(), tr.getY(), iterator);
+        return iterator;
+    }
+}
@@ -0,0 +1,56 @@
+package ru.ifmo.ctd.mekhanikov.range.tree;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Work done by a RangeTree and its secondary trees. A tree created without counters skips all the bookkeeping,
+// so it costs nothing but a null check on the query and rebuild paths.
+public class TreeCounters {
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder subtrees = new LongAdder();
+    private final LongAdder nodesVisited = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private final LongAdder rebuiltNodes = new LongAdder();
+
+    void recordSearch(int subtrees, int nodesVisited) {
+        searches.increment();
+        this.subtrees.add(subtrees);
+        this.nodesVisited.add(nodesVisited);
+    }
+
+    void recordRebuild(int nodes) {
+        rebuilds.increment();
+        rebuiltNodes.add(nodes);
+    }
+
+    // walks down one dimension that collect canonical subtrees, a 2d query makes one in x and one per x-subtree in y
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    // canonical subtrees found by all searches
+    public long getSubtrees() {
+        return subtrees.sum();
+    }
+
+    public long getNodesVisited() {
+        return nodesVisited.sum();
+    }
+
+    // subtrees rebuilt to restore the balance or to take a batch of points
+    public long getRebuilds() {
+        return rebuilds.sum();
+    }
+
+    // total size of the rebuilt subtrees before the rebuild
+    public long getRebuiltNodes() {
+        return rebuiltNodes.sum();
+    }
+
+    public void reset() {
+        searches.reset();
+        subtrees.reset();
+        nodesVisited.reset();
+        rebuilds.reset();
+        rebuiltNodes.reset();
+    }
+}
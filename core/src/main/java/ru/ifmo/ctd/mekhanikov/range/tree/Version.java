@@ -0,0 +1,154 @@
+package ru.ifmo.ctd.mekhanikov.range.tree;
+
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.ReadOnlyRangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Immutable state of a ConcurrentRangeTree: a bulk-built tree plus short lists of points
+// added to it and removed from it since it was built.
+class Version implements ReadOnlyRangeQuery {
+    private final StaticRangeTree base;
+    private final List<Point> added;
+    private final List<Point> removed;
+
+    Version(StaticRangeTree base, List<Point> added, List<Point> removed) {
+        this.base = base;
+        this.added = added;
+        this.removed = removed;
+    }
+
+    static Version of(List<Point> points) {
+        return new Version(StaticRangeTree.build(points), Collections.emptyList(), Collections.emptyList());
+    }
+
+    int size() {
+        return base.size() + added.size() - removed.size();
+    }
+
+    int getDeltaSize() {
+        return added.size() + removed.size();
+    }
+
+    Version with(Point p) {
+        return new Version(base, append(added, p), removed);
+    }
+
+    Version withAll(Collection<? extends Point> points) {
+        List<Point> newAdded = new ArrayList<>(added.size() + points.size());
+        newAdded.addAll(added);
+        newAdded.addAll(points);
+        return new Version(base, Collections.unmodifiableList(newAdded), removed);
+    }
+
+    Version without(Point p) {
+        int index = added.indexOf(p);
+        if (index >= 0) {
+            List<Point> newAdded = new ArrayList<>(added);
+            newAdded.remove(index);
+            return new Version(base, Collections.unmodifiableList(newAdded), removed);
+        }
+        int present = base.getCount(p.getX(), p.getY(), p.getX(), p.getY());
+        if (present > Collections.frequency(removed, p)) {
+            return new Version(base, added, append(removed, p));
+        }
+        return this;
+    }
+
+    // same as without for every point in turn, but with one multiset for the batch and one copy of each list
+    Version withoutAll(Collection<? extends Point> points) {
+        if (points.isEmpty()) {
+            return this;
+        }
+        Map<Point, Integer> pending = Deltas.multiset(points);
+        List<Point> newAdded = new ArrayList<>(added.size());
+        for (Point p : added) {
+            if (!Deltas.hide(pending, p)) {
+                newAdded.add(p);
+            }
+        }
+        Map<Point, Integer> hidden = Deltas.multiset(removed);
+        List<Point> newRemoved = new ArrayList<>(removed);
+        for (Map.Entry<Point, Integer> entry : pending.entrySet()) {
+            Point p = entry.getKey();
+            int present = base.getCount(p.getX(), p.getY(), p.getX(), p.getY()) - hidden.getOrDefault(p, 0);
+            for (int i = Math.min(present, entry.getValue()); i > 0; i--) {
+                newRemoved.add(p);
+            }
+        }
+        return new Version(base, Collections.unmodifiableList(newAdded), Collections.unmodifiableList(newRemoved));
+    }
+
+    // rebuilt without one copy of each of the points, for batches that would overflow the lists anyway
+    Version compactWithout(Collection<? extends Point> points) {
+        Map<Point, Integer> hidden = Deltas.multiset(points);
+        List<Point> result = getAll();
+        result.removeIf(p -> Deltas.hide(hidden, p));
+        return of(result);
+    }
+
+    Version compact() {
+        return of(getAll());
+    }
+
+    List<Point> getAll() {
+        Map<Point, Integer> hidden = Deltas.multiset(removed);
+        List<Point> result = new ArrayList<>(size());
+        for (Point p : base.getPoints()) {
+            if (!Deltas.hide(hidden, p)) {
+                result.add(p);
+            }
+        }
+        result.addAll(added);
+        return result;
+    }
+
+    @Override
+    public List<Point> get(Rectangle query) {
+        List<Point> result = new ArrayList<>();
+        iterator(query).forEachRemaining(result::add);
+        return result;
+    }
+
+    @Override
+    public int getCount(Rectangle query) {
+        Point bl = query.getBottomLeft();
+        Point tr = query.getTopRight();
+        return getCount(bl.getX(), bl.getY(), tr.getX(), tr.getY());
+    }
+
+    @Override
+    public int getCount(double x1, double y1, double x2, double y2) {
+        return base.getCount(x1, y1, x2, y2)
+                + Deltas.count(added, x1, y1, x2, y2) - Deltas.count(removed, x1, y1, x2, y2);
+    }
+
+    @Override
+    public Iterator<Point> iterator(Rectangle query) {
+        return stream(query).iterator();
+    }
+
+    @Override
+    public Stream<Point> stream(Rectangle query) {
+        Map<Point, Integer> hidden = Deltas.multiset(removed.stream().filter(query::contains)::iterator);
+        Stream<Point> visible = base.stream(query);
+        if (!hidden.isEmpty()) {
+            visible = visible.filter(p -> !Deltas.hide(hidden, p));
+        }
+        return Stream.concat(visible, added.stream().filter(query::contains));
+    }
+
+    private static List<Point> append(List<Point> points, Point p) {
+        Point[] result = points.toArray(new Point[points.size() + 1]);
+        result[points.size()] = p;
+        return Collections.unmodifiableList(Arrays.asList(result));
+    }
+}
@@ -0,0 +1,100 @@
+package ru.ifmo.ctd.mekhanikov.range.workload;
+
+import ru.ifmo.ctd.mekhanikov.range.Point;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+// point sets inside the unit square, listed in the order they arrive
+public enum Distribution {
+    UNIFORM {
+        @Override
+        public List<Point> generate(int count, Random random) {
+            List<Point> points = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                points.add(new Point(random.nextDouble(), random.nextDouble()));
+            }
+            return points;
+        }
+    },
+    // gaussian clusters around a few random centers
+    CLUSTERED {
+        @Override
+        public List<Point> generate(int count, Random random) {
+            int clusters = 16;
+            double deviation = 0.02;
+            double[] centers = new double[2 * clusters];
+            for (int i = 0; i < centers.length; i++) {
+                centers[i] = random.nextDouble();
+            }
+            List<Point> points = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                int cluster = random.nextInt(clusters);
+                points.add(new Point(clamp(centers[2 * cluster] + random.nextGaussian() * deviation),
+                        clamp(centers[2 * cluster + 1] + random.nextGaussian() * deviation)));
+            }
+            return points;
+        }
+    },
+    // x takes one of a thousand values with Zipf frequencies, so a few of them are shared by most points
+    ZIPF_DUPLICATES {
+        @Override
+        public List<Point> generate(int count, Random random) {
+            int values = 1000;
+            double[] cumulative = new double[values];
+            double total = 0;
+            for (int i = 0; i < values; i++) {
+                total += 1.0 / (i + 1);
+                cumulative[i] = total;
+            }
+            double[] xs = new double[values];
+            for (int i = 0; i < values; i++) {
+                xs[i] = random.nextDouble();
+            }
+            List<Point> points = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                int rank = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+                points.add(new Point(xs[rank < 0 ? -rank - 1 : rank], random.nextDouble()));
+            }
+            return points;
+        }
+    },
+    // uniform points arriving in increasing x order, like data keyed by time
+    SORTED {
+        @Override
+        public List<Point> generate(int count, Random random) {
+            List<Point> points = UNIFORM.generate(count, random);
+            points.sort(Comparator.comparingDouble(Point::getX));
+            return points;
+        }
+    },
+    HORIZONTAL_LINE {
+        @Override
+        public List<Point> generate(int count, Random random) {
+            List<Point> points = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                points.add(new Point(random.nextDouble(), 0.5));
+            }
+            return points;
+        }
+    },
+    VERTICAL_LINE {
+        @Override
+        public List<Point> generate(int count, Random random) {
+            List<Point> points = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                points.add(new Point(0.5, random.nextDouble()));
+            }
+            return points;
+        }
+    };
+
+    public abstract List<Point> generate(int count, Random random);
+
+    private static double clamp(double value) {
+        return Math.max(0, Math.min(1, value));
+    }
+}
@@ -0,0 +1,63 @@
+package ru.ifmo.ctd.mekhanikov.range.workload;
+
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.RangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+
+// one step of a mixed workload
+public final class Operation {
+
+    public enum Type {
+        ADD, REMOVE, COUNT
+    }
+
+    private final Type type;
+    private final Point point;
+    private final Rectangle query;
+
+    private Operation(Type type, Point point, Rectangle query) {
+        this.type = type;
+        this.point = point;
+        this.query = query;
+    }
+
+    static Operation add(Point p) {
+        return new Operation(Type.ADD, p, null);
+    }
+
+    static Operation remove(Point p) {
+        return new Operation(Type.REMOVE, p, null);
+    }
+
+    static Operation count(Rectangle query) {
+        return new Operation(Type.COUNT, null, query);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    // null for COUNT
+    public Point getPoint() {
+        return point;
+    }
+
+    // null for ADD and REMOVE
+    public Rectangle getQuery() {
+        return query;
+    }
+
+    // returns the count for COUNT and 0 for updates
+    public int apply(RangeQuery rangeQuery) {
+        switch (type) {
+            case ADD:
+                rangeQuery.add(point);
+                return 0;
+            case REMOVE:
+                rangeQuery.remove(point);
+                return 0;
+            default:
+                return rangeQuery.getCount(query);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package ru.ifmo.ctd.mekhanikov.range.workload;
+
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+import ru.ifmo.ctd.mekhanikov.range.tree.StaticRangeTree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+// Points of some distribution with queries over them, everything derived from one seed. Selectivity is measured
+// in points rather than area: a query is a rectangle around a random point, grown or shrunk by bisection until
+// a reference tree counts about selectivity * n points inside, so it holds on skewed sets too (within 5%,
+// unless points sharing a coordinate make the count jump, then the query takes the first size above it).
+public final class Workload {
+
+    private static final int MAX_STEPS = 50;
+
+    private final Distribution distribution;
+    private final List<Point> points;
+    private final List<Rectangle> queries;
+    private final long seed;
+
+    private Workload(Distribution distribution, List<Point> points, List<Rectangle> queries, long seed) {
+        this.distribution = distribution;
+        this.points = points;
+        this.queries = queries;
+        this.seed = seed;
+    }
+
+    public static Workload generate(Distribution distribution, int pointsCount, int queriesCount,
+                                    double selectivity, long seed) {
+        Random random = new Random(seed);
+        List<Point> points = distribution.generate(pointsCount, random);
+        return new Workload(distribution, Collections.unmodifiableList(points),
+                Collections.unmodifiableList(generateQueries(points, queriesCount, selectivity, random)), seed);
+    }
+
+    public Distribution getDistribution() {
+        return distribution;
+    }
+
+    // in arrival order
+    public List<Point> getPoints() {
+        return points;
+    }
+
+    public List<Rectangle> getQueries() {
+        return queries;
+    }
+
+    // operations to run after all points are added: a readShare of them are count queries, the rest add new points
+    // of the same distribution and remove present ones in turn, so the size stays about the same
+    public List<Operation> getMixedOperations(int count, double readShare) {
+        Random random = new Random(seed + 1);
+        List<Point> present = new ArrayList<>(points);
+        List<Point> added = distribution.generate(count, random);
+        List<Operation> operations = new ArrayList<>();
+        boolean add = true;
+        for (int i = 0; i < count; i++) {
+            if (queries.isEmpty() || random.nextDouble() >= readShare) {
+                if (add || present.isEmpty()) {
+                    Point p = added.get(i);
+                    present.add(p);
+                    operations.add(Operation.add(p));
+                } else {
+                    int index = random.nextInt(present.size());
+                    Point p = present.get(index);
+                    present.set(index, present.get(present.size() - 1));
+                    present.remove(present.size() - 1);
+                    operations.add(Operation.remove(p));
+                }
+                add = !add;
+            } else {
+                operations.add(Operation.count(queries.get(random.nextInt(queries.size()))));
+            }
+        }
+        return operations;
+    }
+
+    private static List<Rectangle> generateQueries(List<Point> points, int count, double selectivity,
+                                                   Random random) {
+        List<Rectangle> queries = new ArrayList<>();
+        if (points.isEmpty() || count == 0) {
+            return queries;
+        }
+        StaticRangeTree reference = StaticRangeTree.build(points);
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (Point p : points) {
+            minX = Math.min(minX, p.getX());
+            minY = Math.min(minY, p.getY());
+            maxX = Math.max(maxX, p.getX());
+            maxY = Math.max(maxY, p.getY());
+        }
+        int target = Math.max(1, (int) Math.round(selectivity * points.size()));
+        int tolerance = target / 20;
+        for (int i = 0; i < count; i++) {
+            Point anchor = points.get(random.nextInt(points.size()));
+            // half sides are the same share of the extent of the points along both axes, share 1 takes all of them
+            double lo = 0;
+            double hi = 1;
+            Rectangle query = around(anchor, maxX - minX, maxY - minY);
+            for (int step = 0; step < MAX_STEPS; step++) {
+                double share = (lo + hi) / 2;
+                Rectangle candidate = around(anchor, share * (maxX - minX), share * (maxY - minY));
+                int found = reference.getCount(candidate);
+                if (found < target - tolerance) {
+                    lo = share;
+                } else {
+                    hi = share;
+                    query = candidate;
+                    if (found <= target + tolerance) {
+                        break;
+                    }
+                }
+            }
+            queries.add(query);
+        }
+        return queries;
+    }
+
+    private static Rectangle around(Point center, double halfWidth, double halfHeight) {
+        return new Rectangle(new Point(center.getX() - halfWidth, center.getY() - halfHeight),
+                new Point(center.getX() + halfWidth, center.getY() + halfHeight));
+    }
+}
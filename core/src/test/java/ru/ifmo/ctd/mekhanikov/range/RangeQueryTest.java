@@ -1,40 +1,201 @@
 package ru.ifmo.ctd.mekhanikov.range;
 
+import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Test;
+import ru.ifmo.ctd.mekhanikov.range.cache.CachingRangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.grid.GridRangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.kd.KdTree;
+import ru.ifmo.ctd.mekhanikov.range.rtree.RTree;
+import ru.ifmo.ctd.mekhanikov.range.scan.ColumnarRangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.tree.BufferRangeTree;
+import ru.ifmo.ctd.mekhanikov.range.tree.ConcurrentRangeTree;
+import ru.ifmo.ctd.mekhanikov.range.tree.FlatRangeTree;
+import ru.ifmo.ctd.mekhanikov.range.tree.HybridRangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.tree.LogarithmicRangeTree;
 import ru.ifmo.ctd.mekhanikov.range.tree.RangeTree;
+import ru.ifmo.ctd.mekhanikov.range.tree.StaticRangeTree;
+import ru.ifmo.ctd.mekhanikov.range.workload.Distribution;
+import ru.ifmo.ctd.mekhanikov.range.workload.Operation;
+import ru.ifmo.ctd.mekhanikov.range.workload.Workload;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class RangeQueryTest extends Assert {
 
+    private static final int PAGE_SIZE = 7;
+    private static final int BATCH_SIZE = 100;
+    private static final long SEED = 42;
+    private static final ForkJoinPool POOL = new ForkJoinPool(2);
+
+    @AfterClass
+    public static void shutdownPool() {
+        POOL.shutdown();
+    }
+
+    // answers of the queries over some set of points, found once by a scan and shared by all the checks
+    private static class Expected {
+        final int[] counts;
+        final List<Set<Point>> results = new ArrayList<>();
+
+        Expected(List<Point> points, List<Rectangle> queries) {
+            counts = new int[queries.size()];
+            for (int i = 0; i < queries.size(); i++) {
+                List<Point> inside = points.stream().filter(queries.get(i)::contains).collect(Collectors.toList());
+                counts[i] = inside.size();
+                results.add(new HashSet<>(inside));
+            }
+        }
+    }
+
     private static void test(List<Point> points, List<Rectangle> queries) {
-        RangeQuery rangeQuery = new RangeTree();
+        List<Point> kept = points.subList(0, points.size() / 2);
+        List<Point> removed = points.subList(points.size() / 2, points.size());
+        Expected all = new Expected(points, queries);
+        Expected half = new Expected(kept, queries);
+        Expected none = new Expected(Collections.emptyList(), queries);
+
+        test(new RangeTree(), points, queries, all, half, none);
+        test(new ColumnarRangeQuery(), points, queries, all, half, none);
+        test(new GridRangeQuery(), points, queries, all, half, none);
+        test(new HybridRangeQuery(), points, queries, all, half, none);
+        test(new CachingRangeQuery(new RangeTree(), 64), points, queries, all, half, none);
+        test(new ConcurrentRangeTree(), points, queries, all, half, none);
+        test(new LogarithmicRangeTree(), points, queries, all, half, none);
+        // same update code as above, only the blocks differ
+        fill(new LogarithmicRangeTree(FlatRangeTree::build), points, queries, all);
+        fill(new LogarithmicRangeTree(KdTree::build), points, queries, all);
+        fill(new LogarithmicRangeTree(RTree::build), points, queries, all);
+
+        // the query API is checked on the whole set, the other half only checks the contents
+        Expected other = new Expected(removed, queries);
+        executeQueries(RangeTree.build(points), queries, all);
+        checkContents(RangeTree.build(removed, POOL), queries, other);
+        executeQueries(StaticRangeTree.build(points), queries, all);
+        checkContents(StaticRangeTree.build(removed), queries, other);
+        executeQueries(writeAndOpen(points), queries, all);
+        checkContents(writeAndOpen(removed), queries, other);
+        executeQueries(BufferRangeTree.allocate(points), queries, all);
+        checkContents(BufferRangeTree.allocate(removed), queries, other);
+        checkIds(points, queries);
+        executeQueries(FlatRangeTree.build(points), queries, all);
+        checkContents(FlatRangeTree.build(removed), queries, other);
+        executeQueries(KdTree.build(points), queries, all);
+        checkContents(KdTree.build(removed), queries, other);
+        executeQueries(RTree.build(points), queries, all);
+        checkContents(RTree.build(removed), queries, other);
+    }
+
+    private static RangeQuery writeAndOpen(List<Point> points) {
+        try {
+            Path path = Files.createTempFile("range", ".idx");
+            path.toFile().deleteOnExit();
+            BufferRangeTree.write(StaticRangeTree.build(points), path);
+            return BufferRangeTree.open(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void checkIds(List<Point> points, List<Rectangle> queries) {
+        BufferRangeTree tree = BufferRangeTree.allocate(points);
+        for (Rectangle query : queries) {
+            int[] ids = tree.getIds(query);
+            Arrays.sort(ids);
+            int[] expected = IntStream.range(0, points.size()).filter(i -> query.contains(points.get(i))).toArray();
+            assertArrayEquals(expected, ids);
+        }
+    }
+
+    private static void fill(RangeQuery rangeQuery, List<Point> points, List<Rectangle> queries, Expected all) {
         points.forEach(rangeQuery::add);
-        executeQueries(rangeQuery, points, queries);
+        checkContents(rangeQuery, queries, all);
+    }
+
+    // half holds the answers for the first half of the points
+    private static void test(RangeQuery rangeQuery, List<Point> points, List<Rectangle> queries,
+                             Expected all, Expected half, Expected none) {
+        points.forEach(rangeQuery::add);
+        executeQueries(rangeQuery, queries, all);
         List<Point> removed = points.subList(points.size() / 2, points.size());
         removed.forEach(rangeQuery::remove);
-        executeQueries(rangeQuery, points.subList(0, points.size() / 2), queries);
+        checkContents(rangeQuery, queries, half);
         removed.forEach(rangeQuery::add);
-        executeQueries(rangeQuery, points, queries);
+        checkContents(rangeQuery, queries, all);
+
+        rangeQuery.removeAll(removed);
+        checkContents(rangeQuery, queries, half);
+        for (int i = 0; i < removed.size(); i += BATCH_SIZE) {
+            rangeQuery.addAll(removed.subList(i, Math.min(removed.size(), i + BATCH_SIZE)));
+        }
+        checkContents(rangeQuery, queries, all);
+        rangeQuery.removeAll(points);
+        checkContents(rangeQuery, queries, none);
+        rangeQuery.addAll(points);
+        checkContents(rangeQuery, queries, all);
     }
 
-    private static void executeQueries(RangeQuery rangeQuery, List<Point> points, List<Rectangle> queries) {
-        for (Rectangle query : queries) {
-            assertEquals(getCount(points, query), rangeQuery.getCount(query));
-            Set<Point> expected = getResult(points, query);
-            Set<Point> actual = rangeQuery.get(query).stream().collect(Collectors.toSet());
-            assertEquals(expected, actual);
+    // only the counts and the sets of reported points, the rest of the query API is checked once by executeQueries
+    private static void checkContents(RangeQuery rangeQuery, List<Rectangle> queries, Expected expected) {
+        for (int i = 0; i < queries.size(); i++) {
+            assertEquals(expected.counts[i], rangeQuery.getCount(queries.get(i)));
+            List<Point> actual = rangeQuery.get(queries.get(i));
+            assertEquals(expected.counts[i], actual.size());
+            assertEquals(expected.results.get(i), new HashSet<>(actual));
         }
     }
 
-    private static Set<Point> getResult(List<Point> points, Rectangle query) {
-        return points.stream().filter(query::contains).collect(Collectors.toSet());
+    private static void executeQueries(RangeQuery rangeQuery, List<Rectangle> queries, Expected expectedAll) {
+        int[] counts = rangeQuery.getCounts(queries);
+        assertArrayEquals(expectedAll.counts, counts);
+        assertArrayEquals(counts, BatchQuery.getCounts(rangeQuery, queries, ForkJoinPool.commonPool()));
+        List<List<Point>> results = BatchQuery.getAll(rangeQuery, queries, ForkJoinPool.commonPool());
+        for (int i = 0; i < queries.size(); i++) {
+            assertEquals(expectedAll.results.get(i), new HashSet<>(results.get(i)));
+        }
+        for (int i = 0; i < queries.size(); i++) {
+            Rectangle query = queries.get(i);
+            Point bl = query.getBottomLeft();
+            Point tr = query.getTopRight();
+            assertEquals(expectedAll.counts[i], rangeQuery.getCount(query));
+            assertEquals(expectedAll.counts[i], rangeQuery.getCount(bl.getX(), bl.getY(), tr.getX(), tr.getY()));
+            Set<Point> expected = expectedAll.results.get(i);
+            List<Point> all = rangeQuery.get(query);
+            assertEquals(expectedAll.counts[i], all.size());
+            assertEquals(expected, new HashSet<>(all));
+            assertEquals(expected, rangeQuery.stream(query).collect(Collectors.toSet()));
+            List<Point> visited = new ArrayList<>();
+            assertEquals(expected.isEmpty(), rangeQuery.forEachWhile(query, p -> !visited.add(p)));
+            assertEquals(Math.min(1, expected.size()), visited.size());
+            checkPages(rangeQuery, query, all, expected);
+        }
     }
 
-    private static int getCount(List<Point> points, Rectangle query) {
-        return (int) points.stream().filter(query::contains).count();
+    // all is the result of get(query)
+    private static void checkPages(RangeQuery rangeQuery, Rectangle query, List<Point> all, Set<Point> expected) {
+        RangeCursor cursor = rangeQuery.cursor(query);
+        List<Point> paged = new ArrayList<>();
+        while (cursor.hasNext()) {
+            List<Point> page = cursor.next(PAGE_SIZE);
+            assertFalse(page.isEmpty());
+            paged.addAll(page);
+        }
+        assertEquals(all.size(), paged.size());
+        assertEquals(expected, new HashSet<>(paged));
+        for (int offset : new int[]{0, 1, all.size() / 3, all.size() - 1, all.size()}) {
+            if (offset >= 0 && offset <= all.size()) {
+                List<Point> page = all.subList(offset, Math.min(all.size(), offset + PAGE_SIZE));
+                assertEquals(page, rangeQuery.get(query, offset, PAGE_SIZE));
+            }
+        }
+        assertEquals(Math.min(PAGE_SIZE, all.size()), rangeQuery.get(query, PAGE_SIZE).size());
     }
 
     @Test
@@ -108,4 +269,35 @@ public class RangeQueryTest extends Assert {
 
         test(points, queries);
     }
+
+    @Test
+    public void workloads() {
+        for (Distribution distribution : Distribution.values()) {
+            for (double selectivity : new double[]{0.001, 0.1}) {
+                Workload workload = Workload.generate(distribution, 1000, 100, selectivity, SEED);
+                test(workload.getPoints(), workload.getQueries());
+            }
+        }
+    }
+
+    @Test
+    public void mixedWorkload() {
+        for (Distribution distribution : Distribution.values()) {
+            Workload workload = Workload.generate(distribution, 2000, 100, 0.01, SEED);
+            List<Operation> operations = workload.getMixedOperations(5000, 0.5);
+            int[] expected = apply(new NaiveRangeQuery(), workload, operations);
+            assertArrayEquals(expected, apply(new RangeTree(), workload, operations));
+            assertArrayEquals(expected, apply(new ColumnarRangeQuery(), workload, operations));
+            assertArrayEquals(expected, apply(new GridRangeQuery(), workload, operations));
+            assertArrayEquals(expected, apply(new HybridRangeQuery(), workload, operations));
+            assertArrayEquals(expected, apply(new CachingRangeQuery(new RangeTree(), 32), workload, operations));
+            assertArrayEquals(expected, apply(new ConcurrentRangeTree(), workload, operations));
+            assertArrayEquals(expected, apply(new LogarithmicRangeTree(), workload, operations));
+        }
+    }
+
+    private static int[] apply(RangeQuery rangeQuery, Workload workload, List<Operation> operations) {
+        rangeQuery.addAll(workload.getPoints());
+        return operations.stream().mapToInt(operation -> operation.apply(rangeQuery)).toArray();
+    }
 }
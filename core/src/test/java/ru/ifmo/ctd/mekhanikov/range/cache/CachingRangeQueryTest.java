@@ -0,0 +1,117 @@
+package ru.ifmo.ctd.mekhanikov.range.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ru.ifmo.ctd.mekhanikov.range.BatchQuery;
+import ru.ifmo.ctd.mekhanikov.range.NaiveRangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+import ru.ifmo.ctd.mekhanikov.range.tree.RangeTree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class CachingRangeQueryTest extends Assert {
+
+    private static Rectangle rectangle(double x1, double y1, double x2, double y2) {
+        return new Rectangle(new Point(x1, y1), new Point(x2, y2));
+    }
+
+    @Test
+    public void invalidation() {
+        CachingRangeQuery cache = new CachingRangeQuery(new NaiveRangeQuery(), 10);
+        cache.addAll(Arrays.asList(new Point(1, 1), new Point(5, 5)));
+        Rectangle left = rectangle(0, 0, 2, 2);
+        Rectangle right = rectangle(4, 4, 6, 6);
+        assertEquals(1, cache.getCount(left));
+        assertEquals(1, cache.getCount(right));
+        assertEquals(1, cache.getCount(rectangle(0, 0, 2, 2)));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        cache.add(new Point(1.5, 1.5));
+        assertEquals(1, cache.getInvalidations());
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getCount(left));
+        assertEquals(1, cache.getCount(right));
+        assertEquals(2, cache.getHits());
+
+        assertEquals(2, cache.get(left).size());
+        // hits return copies, changing one does not change the cache
+        List<Point> hit = cache.get(left);
+        hit.clear();
+        assertEquals(2, cache.get(left).size());
+        cache.removeAll(Arrays.asList(new Point(5, 5), new Point(100, 100)));
+        assertEquals(2, cache.getInvalidations());
+        assertEquals(0, cache.getCount(right));
+        assertEquals(2, cache.getCount(left));
+        cache.remove(new Point(1, 1));
+        assertEquals(1, cache.get(left).size());
+    }
+
+    @Test
+    public void eviction() {
+        CachingRangeQuery cache = new CachingRangeQuery(new NaiveRangeQuery(), 2);
+        cache.add(new Point(0, 0));
+        Rectangle a = rectangle(-1, -1, 1, 1);
+        Rectangle b = rectangle(-2, -2, 2, 2);
+        Rectangle c = rectangle(-3, -3, 3, 3);
+        cache.getCount(a);
+        cache.getCount(b);
+        cache.getCount(a);
+        cache.getCount(c);
+        assertEquals(1, cache.getEvictions());
+        cache.getCount(a);
+        cache.getCount(b);
+        assertEquals(2, cache.getHits());
+        assertEquals(4, cache.getMisses());
+        assertEquals(2.0 / 6, cache.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void rectangleEquality() {
+        assertEquals(rectangle(0, 1, 2, 3), rectangle(0, 1, 2, 3));
+        assertEquals(rectangle(0, 1, 2, 3).hashCode(), rectangle(0, 1, 2, 3).hashCode());
+        assertNotEquals(rectangle(0, 1, 2, 3), rectangle(0, 1, 2, 4));
+        assertNotEquals(rectangle(-0.0, 1, 2, 3), rectangle(0.0, 1, 2, 3));
+    }
+
+    // a small cache under parallel batches keeps evicting and refilling entries
+    @Test
+    public void concurrentReads() {
+        Random random = new Random(42);
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            points.add(new Point(random.nextInt(100), random.nextInt(100)));
+        }
+        NaiveRangeQuery naive = new NaiveRangeQuery();
+        points.forEach(naive::add);
+        CachingRangeQuery cache = new CachingRangeQuery(RangeTree.build(points), 8);
+        List<Rectangle> queries = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            int x = random.nextInt(100);
+            int y = random.nextInt(100);
+            // few distinct queries, so that they are often repeated
+            queries.add(rectangle(x % 16, y % 16, x % 16 + 50, y % 16 + 50));
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int round = 0; round < 5; round++) {
+                int[] counts = BatchQuery.getCounts(cache, queries, pool);
+                List<List<Point>> results = BatchQuery.getAll(cache, queries, pool);
+                for (int i = 0; i < queries.size(); i++) {
+                    int expected = naive.getCount(queries.get(i));
+                    assertEquals(expected, counts[i]);
+                    assertEquals(expected, results.get(i).size());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(5 * 2 * queries.size(), cache.getHits() + cache.getMisses());
+        assertTrue(cache.size() <= 8);
+    }
+}
@@ -0,0 +1,128 @@
+package ru.ifmo.ctd.mekhanikov.range.grid;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ru.ifmo.ctd.mekhanikov.range.NaiveRangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public class GridRangeQueryTest extends Assert {
+
+    private static final Comparator<Point> ORDER = Comparator.comparingDouble(Point::getX)
+            .thenComparingDouble(Point::getY);
+
+    private static void check(GridRangeQuery grid, NaiveRangeQuery naive, Random random,
+                              double minX, double minY, double maxX, double maxY) {
+        for (int i = 0; i < 20; i++) {
+            double x1 = minX + random.nextDouble() * (maxX - minX);
+            double y1 = minY + random.nextDouble() * (maxY - minY);
+            double x2 = x1 + random.nextDouble() * (maxX - x1);
+            double y2 = y1 + random.nextDouble() * (maxY - y1);
+            Rectangle query = new Rectangle(new Point(x1, y1), new Point(x2, y2));
+            assertEquals(naive.getCount(query), grid.getCount(query));
+            assertEquals(sorted(naive.get(query)), sorted(grid.get(query)));
+        }
+    }
+
+    private static List<Point> sorted(List<Point> points) {
+        return points.stream().sorted(ORDER).collect(Collectors.toList());
+    }
+
+    // points around the grid go to the border cells until the grid grows over them
+    @Test
+    public void outsideGrid() {
+        Random random = new Random(42);
+        GridRangeQuery grid = new GridRangeQuery();
+        NaiveRangeQuery naive = new NaiveRangeQuery();
+        List<Point> inside = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            inside.add(new Point(random.nextDouble(), random.nextDouble()));
+        }
+        grid.addAll(inside);
+        inside.forEach(naive::add);
+        List<Point> outside = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            // one or both coordinates outside of [0, 1]
+            double x = random.nextBoolean() ? random.nextDouble() : random.nextDouble() * 10 - 5;
+            double y = random.nextBoolean() ? random.nextDouble() : random.nextDouble() * 10 - 5;
+            Point p = new Point(x, y);
+            outside.add(p);
+            grid.add(p);
+            naive.add(p);
+            if (i % 100 == 0) {
+                check(grid, naive, random, -6, -6, 6, 6);
+                check(grid, naive, random, -0.1, -0.1, 1.1, 1.1);
+            }
+        }
+        for (int i = 0; i < outside.size(); i += 2) {
+            grid.remove(outside.get(i));
+            naive.remove(outside.get(i));
+        }
+        assertEquals(1000 + 750, grid.size());
+        check(grid, naive, random, -6, -6, 6, 6);
+    }
+
+    // small batches go into the cells, batches that trip the thresholds rebuild the grid, some of them outside
+    @Test
+    public void batches() {
+        Random random = new Random(43);
+        GridRangeQuery grid = new GridRangeQuery();
+        NaiveRangeQuery naive = new NaiveRangeQuery();
+        for (int i = 0; i < 60; i++) {
+            List<Point> batch = new ArrayList<>();
+            double scale = i % 10 == 9 ? 4 : 1;
+            for (int j = random.nextInt(i % 7 == 6 ? 2000 : 50); j >= 0; j--) {
+                batch.add(new Point(random.nextDouble() * scale, random.nextDouble() * scale));
+            }
+            grid.addAll(batch);
+            naive.addAll(batch);
+            assertEquals(naive.getCount(new Rectangle(new Point(0, 0), new Point(4, 4))), grid.size());
+            check(grid, naive, random, -0.5, -0.5, 4.5, 4.5);
+            check(grid, naive, random, 0, 0, 1, 1);
+        }
+    }
+
+    @Test
+    public void horizontalLine() {
+        line(true);
+    }
+
+    @Test
+    public void verticalLine() {
+        line(false);
+    }
+
+    // the grid of a line has a single row or column, points off the line are added afterwards
+    private static void line(boolean horizontal) {
+        Random random = new Random(42);
+        GridRangeQuery grid = new GridRangeQuery();
+        NaiveRangeQuery naive = new NaiveRangeQuery();
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            double along = random.nextInt(1000);
+            points.add(horizontal ? new Point(along, 5) : new Point(5, along));
+        }
+        grid.addAll(points);
+        points.forEach(naive::add);
+        check(grid, naive, random, -10, -10, 1010, 1010);
+        assertEquals(500, grid.getCount(new Rectangle(new Point(0, 0), new Point(1000, 1000))));
+        for (int i = 0; i < 300; i++) {
+            double along = random.nextInt(1000);
+            double across = 5 + random.nextInt(3) - 1;
+            Point p = horizontal ? new Point(along, across) : new Point(across, along);
+            grid.add(p);
+            naive.add(p);
+            if (i % 50 == 0) {
+                check(grid, naive, random, -10, -10, 1010, 1010);
+                check(grid, naive, random, 4, 4, 6, 6);
+            }
+        }
+        check(grid, naive, random, -10, -10, 1010, 1010);
+    }
+}
@@ -0,0 +1,108 @@
+package ru.ifmo.ctd.mekhanikov.range.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ru.ifmo.ctd.mekhanikov.range.NaiveRangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+import ru.ifmo.ctd.mekhanikov.range.tree.RangeTree;
+import ru.ifmo.ctd.mekhanikov.range.tree.TreeCounters;
+import ru.ifmo.ctd.mekhanikov.range.workload.Distribution;
+import ru.ifmo.ctd.mekhanikov.range.workload.Workload;
+
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+public class MetricsRangeQueryTest extends Assert {
+
+    @Test
+    public void histogram() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 100000; i++) {
+            histogram.record(i);
+        }
+        Histogram.Summary summary = histogram.getSummary();
+        assertEquals(100000, summary.getCount());
+        assertEquals(50000.5, summary.getMean(), 1e-9);
+        assertEquals(100000, summary.getMax());
+        assertEquals(50000, summary.getP50(), 50000 / 16.0);
+        assertEquals(99000, summary.getP99(), 99000 / 16.0);
+        assertTrue(summary.getP50() >= 50000);
+        assertTrue(summary.getP999() <= summary.getMax());
+
+        for (long value = 0; value < 1 << 20; value = 3 * value / 2 + 1) {
+            assertTrue(Histogram.highestValue(Histogram.index(value)) >= value);
+            assertTrue(Histogram.highestValue(Histogram.index(value)) <= value + value / 16);
+        }
+        assertEquals(Long.MAX_VALUE, Histogram.highestValue(Histogram.index(Long.MAX_VALUE)));
+
+        histogram.reset();
+        assertEquals(0, histogram.getSummary().getCount());
+        assertEquals(0, histogram.getSummary().getP99());
+    }
+
+    @Test
+    public void decorator() {
+        Workload workload = Workload.generate(Distribution.UNIFORM, 2000, 100, 0.01, 23);
+        NaiveRangeQuery naive = new NaiveRangeQuery();
+        naive.addAll(workload.getPoints());
+        MetricsRangeQuery metrics = new MetricsRangeQuery(new RangeTree(new TreeCounters()));
+        metrics.addAll(workload.getPoints());
+        long resultSizes = 0;
+        for (Rectangle query : workload.getQueries()) {
+            assertEquals(naive.getCount(query), metrics.getCount(query));
+            List<Point> result = metrics.get(query);
+            assertEquals(naive.get(query).size(), result.size());
+            resultSizes += result.size();
+        }
+        MetricsSnapshot snapshot = metrics.getSnapshot();
+        assertEquals(100, snapshot.getCountLatency().getCount());
+        assertEquals(100, snapshot.getGetLatency().getCount());
+        assertEquals(resultSizes / 100.0, snapshot.getResultSizes().getMean(), 1e-9);
+        assertEquals(2000, snapshot.getAdds());
+        assertTrue(snapshot.getSearches() > 200);
+        assertTrue(snapshot.getSubtreesPerSearch() > 0);
+        assertTrue(metrics.computeHeight() > 0);
+        assertTrue(metrics.computeNodeCount() > 2000);
+
+        metrics.setEnabled(false);
+        metrics.getCount(workload.getQueries().get(0));
+        metrics.remove(workload.getPoints().get(0));
+        assertEquals(100, metrics.getSnapshot().getCountLatency().getCount());
+        assertEquals(0, metrics.getSnapshot().getRemoves());
+
+        metrics.reset();
+        assertEquals(0, metrics.getSnapshot().getCountLatency().getCount());
+        assertEquals(0, metrics.getSnapshot().getSearches());
+
+        MetricsSnapshot plain = new MetricsRangeQuery(naive).getSnapshot();
+        assertEquals(-1, plain.getSearches());
+        assertEquals(-1, new MetricsRangeQuery(naive).computeHeight());
+    }
+
+    @Test
+    public void jmx() throws Exception {
+        MetricsRangeQuery metrics = new MetricsRangeQuery(new RangeTree(new TreeCounters()));
+        metrics.add(new Point(1, 2));
+        metrics.getCount(new Rectangle(new Point(0, 0), new Point(3, 3)));
+        ObjectName name = new ObjectName("ru.ifmo.ctd.mekhanikov.range:type=Metrics,name=test");
+        metrics.register(name);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            CompositeData snapshot = (CompositeData) server.getAttribute(name, "Snapshot");
+            assertEquals(1L, snapshot.get("adds"));
+            assertEquals(1L, ((CompositeData) snapshot.get("countLatency")).get("count"));
+            // the tree walk is an operation, not part of the polled snapshot
+            assertFalse(snapshot.containsKey("nodeCount"));
+            assertTrue((Long) server.invoke(name, "computeNodeCount", new Object[0], new String[0]) > 0);
+            server.setAttribute(name, new Attribute("Enabled", false));
+            assertFalse(metrics.isEnabled());
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
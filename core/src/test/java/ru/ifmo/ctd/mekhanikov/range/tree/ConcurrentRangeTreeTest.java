@@ -0,0 +1,171 @@
+package ru.ifmo.ctd.mekhanikov.range.tree;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ru.ifmo.ctd.mekhanikov.range.NaiveRangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.RangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.ReadOnlyRangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ConcurrentRangeTreeTest extends Assert {
+
+    private static final int WRITERS = 2;
+    private static final int READERS = 4;
+    private static final int WRITES = 5000;
+
+    // fixed points live in [0, 1) x [0, 1), writers only touch [2, 3) x [0, 1)
+    @Test
+    public void stress() throws InterruptedException {
+        Random random = new Random(42);
+        List<Point> fixed = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            fixed.add(new Point(random.nextDouble(), random.nextDouble()));
+        }
+        ConcurrentRangeTree tree = new ConcurrentRangeTree(fixed);
+        NaiveRangeQuery fixedNaive = new NaiveRangeQuery();
+        fixed.forEach(fixedNaive::add);
+
+        AtomicBoolean done = new AtomicBoolean();
+        ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        CountDownLatch writersDone = new CountDownLatch(WRITERS);
+        List<NaiveRangeQuery> written = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            NaiveRangeQuery naive = new NaiveRangeQuery();
+            written.add(naive);
+            long seed = w;
+            threads.add(new Thread(() -> {
+                try {
+                    write(tree, naive, new Random(seed));
+                } catch (Throwable e) {
+                    errors.add(e);
+                } finally {
+                    writersDone.countDown();
+                }
+            }));
+        }
+        for (int r = 0; r < READERS; r++) {
+            long seed = 100 + r;
+            threads.add(new Thread(() -> {
+                try {
+                    Random localRandom = new Random(seed);
+                    while (!done.get()) {
+                        Rectangle query = generateQuery(localRandom, 0);
+                        assertEquals(fixedNaive.getCount(query), tree.getCount(query));
+                        assertEquals(fixedNaive.getCount(query), tree.get(query).size());
+                        ReadOnlyRangeQuery snapshot = tree.snapshot();
+                        Rectangle all = generateQuery(localRandom, 1.5);
+                        assertEquals(snapshot.getCount(all), snapshot.get(all).size());
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        writersDone.await();
+        done.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(errors.toString(), errors.isEmpty());
+
+        for (int i = 0; i < 1000; i++) {
+            Rectangle query = generateQuery(random, random.nextInt(3));
+            int expected = fixedNaive.getCount(query);
+            for (RangeQuery naive : written) {
+                expected += naive.getCount(query);
+            }
+            assertEquals(expected, tree.getCount(query));
+        }
+    }
+
+    @Test
+    public void snapshot() {
+        Random random = new Random(42);
+        ConcurrentRangeTree tree = new ConcurrentRangeTree();
+        NaiveRangeQuery naive = new NaiveRangeQuery();
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Point p = new Point(random.nextDouble(), random.nextDouble());
+            points.add(p);
+            tree.add(p);
+            naive.add(p);
+        }
+        ReadOnlyRangeQuery snapshot = tree.snapshot();
+        for (int i = 0; i < 500; i++) {
+            tree.remove(points.get(i));
+            tree.add(new Point(random.nextDouble(), random.nextDouble()));
+        }
+        for (int i = 0; i < 100; i++) {
+            Rectangle query = generateQuery(random, 0);
+            assertEquals(naive.getCount(query), snapshot.getCount(query));
+            assertEquals(naive.getCount(query), snapshot.get(query).size());
+        }
+        // snapshots have no update methods at all
+        assertFalse(snapshot instanceof RangeQuery);
+    }
+
+    // batches both below and above the delta limit, with duplicates, points of the delta and absent points
+    @Test
+    public void removeAll() {
+        Random random = new Random(43);
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            points.add(new Point(random.nextInt(40), random.nextInt(40)));
+        }
+        ConcurrentRangeTree tree = new ConcurrentRangeTree(points);
+        NaiveRangeQuery naive = new NaiveRangeQuery();
+        naive.addAll(points);
+        for (int i = 0; i < 40; i++) {
+            List<Point> added = new ArrayList<>();
+            for (int j = random.nextInt(20); j > 0; j--) {
+                added.add(new Point(random.nextInt(40), random.nextInt(40)));
+            }
+            tree.addAll(added);
+            naive.addAll(added);
+            List<Point> batch = new ArrayList<>();
+            for (int j = i % 2 == 0 ? random.nextInt(60) : 100 + random.nextInt(200); j > 0; j--) {
+                batch.add(new Point(random.nextInt(40), random.nextInt(42)));
+            }
+            tree.removeAll(batch);
+            batch.forEach(naive::remove);
+            for (int j = 0; j < 20; j++) {
+                Rectangle query = new Rectangle(new Point(random.nextInt(40), random.nextInt(40)),
+                        new Point(40 + random.nextInt(40), 40 + random.nextInt(40)));
+                assertEquals(naive.getCount(query), tree.getCount(query));
+                assertEquals(naive.getCount(query), tree.get(query).size());
+            }
+        }
+    }
+
+    private static void write(ConcurrentRangeTree tree, NaiveRangeQuery naive, Random random) {
+        List<Point> present = new ArrayList<>();
+        for (int i = 0; i < WRITES; i++) {
+            if (present.isEmpty() || random.nextInt(3) != 0) {
+                Point p = new Point(2 + random.nextDouble(), random.nextDouble());
+                present.add(p);
+                naive.add(p);
+                tree.add(p);
+            } else {
+                Point p = present.remove(random.nextInt(present.size()));
+                naive.remove(p);
+                tree.remove(p);
+            }
+        }
+    }
+
+    private static Rectangle generateQuery(Random random, double shift) {
+        Point bl = new Point(shift + random.nextDouble(), random.nextDouble());
+        Point tr = new Point(bl.getX() + random.nextDouble(), bl.getY() + random.nextDouble());
+        return new Rectangle(bl, tr);
+    }
+}
@@ -0,0 +1,131 @@
+package ru.ifmo.ctd.mekhanikov.range.tree;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ru.ifmo.ctd.mekhanikov.range.Box;
+import ru.ifmo.ctd.mekhanikov.range.MultiPoint;
+import ru.ifmo.ctd.mekhanikov.range.NaiveRangeQuery;
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public class MultiRangeTreeTest extends Assert {
+
+    private static void test(int dimension, int pointsCount, int queriesCount) {
+        Random random = new Random(dimension);
+        List<MultiPoint> points = new ArrayList<>();
+        for (int i = 0; i < pointsCount; i++) {
+            double[] coordinates = new double[dimension];
+            for (int j = 0; j < dimension; j++) {
+                // coarse grid, so that many points share coordinates
+                coordinates[j] = random.nextInt(20);
+            }
+            points.add(new MultiPoint(coordinates));
+        }
+        MultiRangeTree<MultiPoint> tree = MultiRangeTree.build(points, dimension);
+        for (int i = 0; i < queriesCount; i++) {
+            double[] min = new double[dimension];
+            double[] max = new double[dimension];
+            for (int j = 0; j < dimension; j++) {
+                min[j] = random.nextInt(22) - 1;
+                max[j] = min[j] + random.nextInt(15);
+            }
+            Box query = new Box(new MultiPoint(min), new MultiPoint(max));
+            List<MultiPoint> expected = points.stream().filter(query::contains).collect(Collectors.toList());
+            assertEquals(expected.size(), tree.getCount(query));
+            assertEquals(countEach(expected), countEach(tree.get(query)));
+        }
+    }
+
+    private static Map<MultiPoint, Integer> countEach(List<MultiPoint> points) {
+        Map<MultiPoint, Integer> result = new HashMap<>();
+        points.forEach(p -> result.merge(p, 1, Integer::sum));
+        return result;
+    }
+
+    @Test
+    public void oneDimension() {
+        test(1, 500, 200);
+    }
+
+    @Test
+    public void twoDimensions() {
+        test(2, 1000, 500);
+    }
+
+    @Test
+    public void threeDimensions() {
+        test(3, 1000, 500);
+    }
+
+    @Test
+    public void fourDimensions() {
+        test(4, 500, 500);
+    }
+
+    @Test
+    public void empty() {
+        MultiRangeTree<MultiPoint> tree = MultiRangeTree.build(new ArrayList<>(), 3);
+        Box query = new Box(new MultiPoint(0, 0, 0), new MultiPoint(1, 1, 1));
+        assertEquals(0, tree.getCount(query));
+        assertTrue(tree.get(query).isEmpty());
+    }
+
+    @Test
+    public void accessor() {
+        Random random = new Random(42);
+        List<Point> points = new ArrayList<>();
+        NaiveRangeQuery naive = new NaiveRangeQuery();
+        for (int i = 0; i < 1000; i++) {
+            Point p = new Point(random.nextDouble(), random.nextDouble());
+            points.add(p);
+            naive.add(p);
+        }
+        MultiRangeTree<Point> tree = MultiRangeTree.build(points, 2, (p, dim) -> dim == 0 ? p.getX() : p.getY());
+        for (int i = 0; i < 100; i++) {
+            Point bl = new Point(random.nextDouble(), random.nextDouble());
+            Point tr = new Point(bl.getX() + random.nextDouble(), bl.getY() + random.nextDouble());
+            Box query = new Box(new MultiPoint(bl.getX(), bl.getY()), new MultiPoint(tr.getX(), tr.getY()));
+            assertEquals(naive.getCount(new Rectangle(bl, tr)), tree.getCount(query));
+        }
+    }
+
+    @Test
+    public void dynamic() {
+        Random random = new Random(42);
+        int dimension = 3;
+        LogarithmicMultiRangeTree<MultiPoint> tree = LogarithmicMultiRangeTree.create(dimension);
+        List<MultiPoint> present = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            if (present.isEmpty() || random.nextInt(3) != 0) {
+                MultiPoint p = new MultiPoint(random.nextInt(20), random.nextInt(20), random.nextInt(20));
+                present.add(p);
+                tree.add(p);
+            } else {
+                MultiPoint p = present.remove(random.nextInt(present.size()));
+                tree.remove(p);
+            }
+            // absent points are ignored
+            tree.remove(new MultiPoint(-1, -1, -1));
+            if (i % 50 == 0) {
+                double[] min = new double[dimension];
+                double[] max = new double[dimension];
+                for (int j = 0; j < dimension; j++) {
+                    min[j] = random.nextInt(22) - 1;
+                    max[j] = min[j] + random.nextInt(15);
+                }
+                Box query = new Box(new MultiPoint(min), new MultiPoint(max));
+                List<MultiPoint> expected = present.stream().filter(query::contains).collect(Collectors.toList());
+                assertEquals(expected.size(), tree.getCount(query));
+                assertEquals(countEach(expected), countEach(tree.get(query)));
+            }
+        }
+        assertEquals(present.size(), tree.size());
+    }
+}
@@ -0,0 +1,220 @@
+package ru.ifmo.ctd.mekhanikov.range.tree;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ru.ifmo.ctd.mekhanikov.range.Aggregator;
+import ru.ifmo.ctd.mekhanikov.range.Aggregators;
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+import ru.ifmo.ctd.mekhanikov.range.WeightedPoint;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+public class RangeTreeTest extends Assert {
+
+    private static final Comparator<Point> ORDER =
+            Comparator.comparingDouble(Point::getX).thenComparingDouble(Point::getY);
+
+    private static List<Point> sorted(List<Point> points) {
+        return points.stream().sorted(ORDER).collect(Collectors.toList());
+    }
+
+    @Test
+    public void parallelGet() {
+        Random random = new Random(16);
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < 30000; i++) {
+            // coarse grid, so that many points are equal
+            points.add(new Point(random.nextInt(1000), random.nextInt(1000)));
+        }
+        RangeTree tree = RangeTree.build(points);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        for (int i = 0; i < 50; i++) {
+            Point bl = new Point(random.nextInt(1000) - 100, random.nextInt(1000) - 100);
+            Point tr = new Point(bl.getX() + random.nextInt(1200), bl.getY() + random.nextInt(1200));
+            Rectangle query = new Rectangle(bl, tr);
+            List<Point> expected = points.stream().filter(query::contains).collect(Collectors.toList());
+            List<Point> actual = tree.get(query, pool);
+            assertEquals(sorted(expected), sorted(actual));
+            // same contract as get(query): the caller owns the list
+            actual.add(bl);
+        }
+        pool.shutdown();
+    }
+
+    private static void checkAggregates(RangeTree tree, Aggregator<Aggregators.Stats> stats,
+                                        List<Point> points, List<Rectangle> queries) {
+        for (Rectangle query : queries) {
+            List<Point> inside = points.stream().filter(query::contains).collect(Collectors.toList());
+            Aggregators.Stats actual = tree.aggregate(query, stats);
+            assertEquals(inside.size(), actual.getCount());
+            // integer weights, so sums do not depend on the order of additions
+            assertEquals(inside.stream().mapToDouble(WeightedPoint::weightOf).sum(), actual.getSum(), 0);
+            assertEquals(inside.stream().mapToDouble(WeightedPoint::weightOf).min().orElse(Double.POSITIVE_INFINITY),
+                    actual.getMin(), 0);
+            assertEquals(inside.stream().mapToDouble(WeightedPoint::weightOf).max().orElse(Double.NEGATIVE_INFINITY),
+                    actual.getMax(), 0);
+            assertEquals(inside.size(), (int) tree.aggregate(query, Aggregators.count()));
+        }
+    }
+
+    @Test
+    public void aggregate() {
+        Random random = new Random(19);
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            points.add(new WeightedPoint(random.nextInt(100), random.nextInt(100), random.nextInt(1000) - 500));
+        }
+        List<Rectangle> queries = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Point bl = new Point(random.nextInt(110) - 5, random.nextInt(110) - 5);
+            queries.add(new Rectangle(bl, new Point(bl.getX() + random.nextInt(60), bl.getY() + random.nextInt(60))));
+        }
+        Aggregator<Aggregators.Stats> stats = Aggregators.stats(WeightedPoint::weightOf);
+        RangeTree tree = new RangeTree(stats);
+        List<Point> first = points.subList(0, points.size() / 2);
+        List<Point> second = points.subList(points.size() / 2, points.size());
+        first.forEach(tree::add);
+        checkAggregates(tree, stats, first, queries);
+        tree.addAll(second);
+        checkAggregates(tree, stats, points, queries);
+        first.forEach(tree::remove);
+        checkAggregates(tree, stats, second, queries);
+        tree.removeAll(second);
+        checkAggregates(tree, stats, new ArrayList<>(), queries);
+    }
+
+    @Test
+    public void removeAllInBatches() {
+        Random random = new Random(23);
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < 4000; i++) {
+            points.add(new WeightedPoint(random.nextInt(100), random.nextInt(100), random.nextInt(1000) - 500));
+        }
+        List<Rectangle> queries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Point bl = new Point(random.nextInt(110) - 5, random.nextInt(110) - 5);
+            queries.add(new Rectangle(bl, new Point(bl.getX() + random.nextInt(60), bl.getY() + random.nextInt(60))));
+        }
+        Aggregator<Aggregators.Stats> stats = Aggregators.stats(WeightedPoint::weightOf);
+        RangeTree tree = new RangeTree(stats);
+        tree.addAll(points);
+        List<Point> remaining = new ArrayList<>(points);
+        while (!remaining.isEmpty()) {
+            // batches far below the rebuild threshold of the whole tree, with points that are not stored
+            int size = Math.min(remaining.size(), 1 + random.nextInt(60));
+            List<Point> batch = new ArrayList<>(remaining.subList(remaining.size() - size, remaining.size()));
+            remaining.subList(remaining.size() - size, remaining.size()).clear();
+            batch.add(new WeightedPoint(random.nextInt(100), random.nextInt(100), 1000));
+            batch.add(new Point(-1, random.nextInt(100)));
+            tree.removeAll(batch);
+            assertEquals(remaining.size(), tree.getCount(-1, -1, 100, 100));
+            checkAggregates(tree, stats, remaining, queries);
+        }
+        tree.addAll(points);
+        checkAggregates(tree, stats, points, queries);
+    }
+
+    @Test
+    public void sample() {
+        Random random = new Random(20);
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            points.add(new Point(random.nextInt(200), random.nextInt(200)));
+        }
+        RangeTree tree = RangeTree.build(points);
+        for (int i = 0; i < 100; i++) {
+            Point bl = new Point(random.nextInt(220) - 10, random.nextInt(220) - 10);
+            Point tr = new Point(bl.getX() + random.nextInt(100), bl.getY() + random.nextInt(100));
+            Rectangle query = new Rectangle(bl, tr);
+            List<Point> expected = points.stream().filter(query::contains).collect(Collectors.toList());
+            int k = random.nextInt(50);
+            List<Point> sample = tree.sample(query, k, random);
+            assertEquals(Math.min(k, expected.size()), sample.size());
+            Map<Point, Long> available =
+                    expected.stream().collect(Collectors.groupingBy(p -> p, Collectors.counting()));
+            Map<Point, Long> taken = sample.stream().collect(Collectors.groupingBy(p -> p, Collectors.counting()));
+            taken.forEach((p, count) -> assertTrue(count <= available.getOrDefault(p, 0L)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeSample() {
+        RangeTree.build(new ArrayList<>()).sample(new Rectangle(new Point(0, 0), new Point(1, 1)), -1, new Random());
+    }
+
+    @Test
+    public void sampleIsUniform() {
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            points.add(new Point(i % 10, i / 10));
+        }
+        RangeTree tree = RangeTree.build(points);
+        Rectangle query = new Rectangle(new Point(2, 1), new Point(7, 3));
+        Random random = new Random(20);
+        Map<Point, Integer> hits = new HashMap<>();
+        int runs = 18000;
+        for (int i = 0; i < runs; i++) {
+            tree.sample(query, 1, random).forEach(p -> hits.merge(p, 1, Integer::sum));
+        }
+        assertEquals(18, hits.size());
+        for (int count : hits.values()) {
+            assertEquals(runs / 18.0, count, runs / 18.0 * 0.15);
+        }
+    }
+
+    @Test
+    public void approximateCount() {
+        Random random = new Random(21);
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            points.add(new Point(random.nextDouble(), random.nextDouble()));
+        }
+        RangeTree tree = RangeTree.build(points);
+        for (int i = 0; i < 200; i++) {
+            Point bl = new Point(random.nextDouble(), random.nextDouble());
+            Point tr = new Point(bl.getX() + random.nextDouble(), bl.getY() + random.nextDouble());
+            Rectangle query = new Rectangle(bl, tr);
+            int exact = tree.getCount(query);
+            assertEquals(exact, tree.getApproximateCount(query, 0));
+            for (int maxError : new int[]{1, 10, 100, 1000}) {
+                assertTrue(Math.abs(tree.getApproximateCount(query, maxError) - exact) <= maxError);
+            }
+        }
+    }
+
+    @Test
+    public void counters() {
+        Random random = new Random(22);
+        TreeCounters counters = new TreeCounters();
+        RangeTree tree = new RangeTree(counters);
+        int n = 5000;
+        for (int i = 0; i < n; i++) {
+            tree.add(new Point(random.nextDouble(), random.nextDouble()));
+        }
+        assertTrue(counters.getRebuilds() > 0);
+        assertTrue(counters.getRebuiltNodes() >= counters.getRebuilds());
+        assertTrue(tree.getHeight() > 32 - Integer.numberOfLeadingZeros(n));
+        assertTrue(tree.getNodeCount() > 2 * n);
+
+        counters.reset();
+        Rectangle query = new Rectangle(new Point(0.2, 0.3), new Point(0.6, 0.7));
+        tree.getCount(query);
+        long xSubtrees = counters.getSearches() - 1;
+        assertTrue(xSubtrees > 0);
+        assertTrue(counters.getSubtrees() >= xSubtrees);
+        assertTrue(counters.getNodesVisited() >= 2 * counters.getSearches());
+
+        counters.reset();
+        tree.get(query);
+        assertEquals(xSubtrees + 1, counters.getSearches());
+        assertNull(new RangeTree().getCounters());
+    }
+}
@@ -0,0 +1,40 @@
+package ru.ifmo.ctd.mekhanikov.range.workload;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ru.ifmo.ctd.mekhanikov.range.Point;
+import ru.ifmo.ctd.mekhanikov.range.Rectangle;
+
+public class WorkloadTest extends Assert {
+
+    @Test
+    public void selectivity() {
+        for (Distribution distribution : Distribution.values()) {
+            for (double selectivity : new double[]{0.001, 0.01, 0.1}) {
+                Workload workload = Workload.generate(distribution, 20000, 50, selectivity, 42);
+                int target = (int) Math.round(selectivity * 20000);
+                long total = 0;
+                for (Rectangle query : workload.getQueries()) {
+                    long count = workload.getPoints().stream().filter(query::contains).count();
+                    // clamped clusters share coordinates on the border, so a query there may overshoot
+                    if (distribution == Distribution.UNIFORM) {
+                        assertEquals(selectivity + "", target, count, target / 20);
+                    }
+                    assertTrue(distribution + " " + selectivity, count >= target - target / 20);
+                    total += count;
+                }
+                assertEquals(distribution + " " + selectivity, target, (double) total / 50, target / 20.0);
+            }
+        }
+    }
+
+    // no rectangle holds half a point, so every query takes the only one
+    @Test
+    public void singlePoint() {
+        Workload workload = Workload.generate(Distribution.UNIFORM, 1, 10, 0.5, 42);
+        Point p = workload.getPoints().get(0);
+        for (Rectangle query : workload.getQueries()) {
+            assertTrue(query.contains(p));
+        }
+    }
+}